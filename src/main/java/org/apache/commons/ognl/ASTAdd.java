@@ -51,12 +51,30 @@ class ASTAdd
     {
         Object result = children[0].getValue( context, source );
 
+        // leading int operands are summed unboxed, only their total being boxed
+        boolean ints = result instanceof Integer;
+        int sum = ints ? (Integer) result : 0;
+
         for ( int i = 1; i < children.length; ++i )
         {
-            result = OgnlOps.add( result, children[i].getValue( context, source ) );
+            Object value = children[i].getValue( context, source );
+
+            if ( ints && value instanceof Integer )
+            {
+                sum += (Integer) value;
+            }
+            else
+            {
+                if ( ints )
+                {
+                    result = OgnlOps.newInteger( NumericTypes.INT, sum );
+                    ints = false;
+                }
+                result = OgnlOps.add( result, value );
+            }
         }
 
-        return result;
+        return ints ? OgnlOps.newInteger( NumericTypes.INT, sum ) : result;
     }
 
     public String getExpressionOperator( int index )
@@ -32,13 +32,13 @@ public class ASTChain
     implements NodeType, OrderedReturn
 {
 
-    private Class getterClass;
+    private volatile Class getterClass;
 
-    private Class setterClass;
+    private volatile Class setterClass;
 
-    private String lastExpression;
+    private volatile String lastExpression;
 
-    private String coreExpression;
+    private volatile String coreExpression;
 
     public ASTChain( int id )
     {
@@ -306,7 +306,7 @@ public class ASTChain
 
                     // System.out.println("Astchain i: " + i + " currentobj : " + context.getCurrentObject() +
                     // " and root: " + context.getRoot());
-                    if ( !(child instanceof ASTVarRef) && !constructor && !(
+                    if ( !(child instanceof ASTVarRef) && !constructor && !isCollectionOperation( child ) && !(
                         child instanceof OrderedReturn
                             && ( (OrderedReturn) child ).getLastExpression() != null ) && ( parent == null
                         || !(parent instanceof ASTSequence)) )
@@ -343,8 +343,8 @@ public class ASTChain
                         }
                     }
                     else if ( child instanceof ASTOr || child instanceof ASTAnd
-                        || child instanceof ASTCtor || ( child instanceof ASTStaticField
-                        && parent == null ) )
+                        || child instanceof ASTCtor || isCollectionOperation( child )
+                        || ( child instanceof ASTStaticField && parent == null ) )
                     {
                         context.put( "_noRoot", "true" );
                         result = value;
@@ -379,6 +379,15 @@ public class ASTChain
         return result;
     }
 
+    /**
+     * Selections and projections wrap the chain evaluated so far in their source, replacing it.
+     */
+    private static boolean isCollectionOperation( Node child )
+    {
+        return child instanceof ASTSelect || child instanceof ASTSelectFirst || child instanceof ASTSelectLast
+            || child instanceof ASTProject;
+    }
+
     public String toSetSourceString( OgnlContext context, Object target )
     {
         String prevChain = (String) context.get( "_currentChain" );
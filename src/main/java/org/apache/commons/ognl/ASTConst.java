@@ -30,7 +30,7 @@ public class ASTConst
 
     private Object value;
 
-    private Class getterClass;
+    private volatile Class getterClass;
 
     public ASTConst( int id )
     {
@@ -35,6 +35,10 @@ public class ASTCtor
 
     private boolean isArray;
 
+    private transient volatile ClassBinding classBinding;
+
+    private transient volatile CallSiteCache callSite;
+
     public ASTCtor( int id )
     {
         super( id );
@@ -90,7 +94,7 @@ public class ASTCtor
             }
             try
             {
-                Class componentClass = OgnlRuntime.classForName( context, className );
+                Class componentClass = getClassBinding().get( context );
                 List sourceList = null;
                 int size;
 
@@ -131,12 +135,37 @@ public class ASTCtor
         }
         else
         {
-            result = OgnlRuntime.callConstructor( context, className, args );
+            Class<?> targetClass;
+            try
+            {
+                targetClass = getClassBinding().get( context );
+            }
+            catch ( ClassNotFoundException ex )
+            {
+                throw new MethodFailedException( className, "new", ex );
+            }
+
+            CallSiteCache cache = callSite;
+            if ( cache == null )
+            {
+                callSite = cache = new CallSiteCache();
+            }
+            result = cache.callConstructor( context, targetClass, args );
         }
 
         return result;
     }
 
+    private ClassBinding getClassBinding()
+    {
+        ClassBinding result = classBinding;
+        if ( result == null )
+        {
+            classBinding = result = new ClassBinding( className );
+        }
+        return result;
+    }
+
     public String toGetSourceString( OgnlContext context, Object target )
     {
         StringBuilder result = new StringBuilder("new " + className);
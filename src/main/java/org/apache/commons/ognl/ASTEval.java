@@ -44,7 +44,7 @@ class ASTEval
         Node node;
 
         source = children[1].getValue( context, source );
-        node = ( expr instanceof Node ) ? (Node) expr : (Node) Ognl.parseExpression( expr.toString() );
+        node = ( expr instanceof Node ) ? (Node) expr : Ognl.getExpressionCache().get( expr.toString() );
         try
         {
             context.setRoot( source );
@@ -64,7 +64,7 @@ class ASTEval
         Node node;
 
         target = children[1].getValue( context, target );
-        node = ( expr instanceof Node ) ? (Node) expr : (Node) Ognl.parseExpression( expr.toString() );
+        node = ( expr instanceof Node ) ? (Node) expr : Ognl.getExpressionCache().get( expr.toString() );
         try
         {
             context.setRoot( target );
@@ -41,6 +41,13 @@ class ASTIn
         throws OgnlException
     {
         Object v1 = children[0].getValue( context, source );
+        // a list literal of constants is looked up in a set of its elements rather than enumerated
+        Boolean found =
+            children[1] instanceof ASTList ? ( (ASTList) children[1] ).constantElementsContain( context, v1 ) : null;
+        if ( found != null )
+        {
+            return found;
+        }
         Object v2 = children[1].getValue( context, source );
 
         return OgnlOps.in( v1, v2 ) ? Boolean.TRUE : Boolean.FALSE;
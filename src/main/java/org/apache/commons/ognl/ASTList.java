@@ -24,7 +24,9 @@ import org.apache.commons.ognl.enhance.OgnlExpressionCompiler;
 import org.apache.commons.ognl.enhance.UnsupportedCompilationException;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  */
@@ -32,6 +34,10 @@ public class ASTList
     extends SimpleNode
     implements NodeType
 {
+    private static final ConstantElements NOT_CONSTANT = new ConstantElements( null, null );
+
+    private transient volatile ConstantElements constantElements;
+
     public ASTList( int id )
     {
         super( id );
@@ -53,6 +59,66 @@ public class ASTList
         return answer;
     }
 
+    /**
+     * Tells whether a value is {@link OgnlOps#in(Object, Object) in} this list when all of its elements are
+     * constants: they are then looked up in a hashed set, built once on the first call.
+     *
+     * @param context the context the elements are evaluated with.
+     * @param value the value looked up.
+     * @return whether the value is in the list, null if some of its elements aren't constant.
+     * @throws OgnlException if the evaluation of an element fails.
+     */
+    Boolean constantElementsContain( OgnlContext context, Object value )
+        throws OgnlException
+    {
+        ConstantElements elements = constantElements;
+        if ( elements == null )
+        {
+            elements = NOT_CONSTANT;
+            if ( hasConstantElements( context ) )
+            {
+                List<?> values = (List<?>) getValueBody( context, null );
+                elements = new ConstantElements( new HashSet<Object>( values ), getElementClass( values ) );
+            }
+            constantElements = elements;
+        }
+        if ( elements == NOT_CONSTANT )
+        {
+            return null;
+        }
+        return OgnlOps.in( value, elements.elements, elements.elementClass ) ? Boolean.TRUE : Boolean.FALSE;
+    }
+
+    /**
+     * Gets the class shared by all the values, null if they don't share the same one or one is null.
+     */
+    private static Class<?> getElementClass( List<?> values )
+    {
+        Class<?> result = null;
+        for ( Object value : values )
+        {
+            if ( value == null || ( result != null && value.getClass() != result ) )
+            {
+                return null;
+            }
+            result = value.getClass();
+        }
+        return result;
+    }
+
+    private boolean hasConstantElements( OgnlContext context )
+        throws OgnlException
+    {
+        for ( int i = 0; i < jjtGetNumChildren(); ++i )
+        {
+            if ( !( children[i] instanceof SimpleNode ) || !( (SimpleNode) children[i] ).isConstant( context ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public Class getGetterClass()
     {
         return null;
@@ -218,4 +284,20 @@ public class ASTList
     {
         return visitor.visit( this, data );
     }
+
+    private static final class ConstantElements
+    {
+        final Set<Object> elements;
+
+        /**
+         * Class of all the elements, null if they don't share the same one.
+         */
+        final Class<?> elementClass;
+
+        ConstantElements( Set<Object> elements, Class<?> elementClass )
+        {
+            this.elements = elements;
+            this.elementClass = elementClass;
+        }
+    }
 }
@@ -35,11 +35,13 @@ public class ASTMethod
 
     private String methodName;
 
-    private String lastExpression;
+    private volatile String lastExpression;
 
-    private String coreExpression;
+    private volatile String coreExpression;
 
-    private Class getterClass;
+    private volatile Class getterClass;
+
+    private transient volatile CallSiteCache callSite;
 
     public ASTMethod( int id )
     {
@@ -74,24 +76,36 @@ public class ASTMethod
     protected Object getValueBody( OgnlContext context, Object source )
         throws OgnlException
     {
-        Object[] args = new Object[jjtGetNumChildren()];
-
-        Object result, root = context.getRoot();
+        Object[] args = context.acquireArguments( jjtGetNumChildren() );
 
-        for ( int i = 0; i < args.length; ++i )
+        try
         {
-            args[i] = children[i].getValue( context, root );
-        }
+            Object result, root = context.getRoot();
+
+            for ( int i = 0; i < args.length; ++i )
+            {
+                args[i] = children[i].getValue( context, root );
+            }
 
-        result = OgnlRuntime.callMethod( context, source, methodName, args );
+            CallSiteCache cache = callSite;
+            if ( cache == null )
+            {
+                callSite = cache = new CallSiteCache();
+            }
+            result = cache.callMethod( context, source, methodName, args );
 
-        if ( result == null )
+            if ( result == null )
+            {
+                NullHandler nullHandler = OgnlRuntime.getNullHandler( OgnlRuntime.getTargetClass( source ) );
+                result = nullHandler.nullMethodResult( context, source, methodName, args );
+            }
+
+            return result;
+        }
+        finally
         {
-            NullHandler nullHandler = OgnlRuntime.getNullHandler( OgnlRuntime.getTargetClass( source ) );
-            result = nullHandler.nullMethodResult( context, source, methodName, args );
+            context.releaseArguments( args );
         }
-
-        return result;
     }
 
     public String getLastExpression()
@@ -44,11 +44,31 @@ class ASTMultiply
         throws OgnlException
     {
         Object result = children[0].getValue( context, source );
+
+        // leading int operands are multiplied unboxed, only their product being boxed
+        boolean ints = result instanceof Integer;
+        int product = ints ? (Integer) result : 0;
+
         for ( int i = 1; i < children.length; ++i )
         {
-            result = OgnlOps.multiply( result, children[i].getValue( context, source ) );
+            Object value = children[i].getValue( context, source );
+
+            if ( ints && value instanceof Integer )
+            {
+                product *= (Integer) value;
+            }
+            else
+            {
+                if ( ints )
+                {
+                    result = OgnlOps.newInteger( NumericTypes.INT, product );
+                    ints = false;
+                }
+                result = OgnlOps.multiply( result, value );
+            }
         }
-        return result;
+
+        return ints ? OgnlOps.newInteger( NumericTypes.INT, product ) : result;
     }
 
     public String getExpressionOperator( int index )
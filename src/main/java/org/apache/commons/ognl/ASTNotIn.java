@@ -41,7 +41,15 @@ class ASTNotIn
         throws OgnlException
     {
         Object v1 = children[0].getValue( context, source );
+        // a list literal of constants is looked up in a set of its elements rather than enumerated
+        Boolean found =
+            children[1] instanceof ASTList ? ( (ASTList) children[1] ).constantElementsContain( context, v1 ) : null;
+        if ( found != null )
+        {
+            return !found ? Boolean.TRUE : Boolean.FALSE;
+        }
         Object v2 = children[1].getValue( context, source );
+
         return OgnlOps.in( v1, v2 ) ? Boolean.FALSE : Boolean.TRUE;
     }
 
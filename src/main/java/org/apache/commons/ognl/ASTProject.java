@@ -21,10 +21,6 @@ package org.apache.commons.ognl;
 
 import org.apache.commons.ognl.enhance.UnsupportedCompilationException;
 
-import java.util.ArrayList;
-import java.util.Enumeration;
-import java.util.List;
-
 /**
  */
 class ASTProject
@@ -44,23 +40,12 @@ class ASTProject
     protected Object getValueBody( OgnlContext context, Object source )
         throws OgnlException
     {
-        Node expr = children[0];
-        List answer = new ArrayList();
-
-        ElementsAccessor elementsAccessor = OgnlRuntime.getElementsAccessor( OgnlRuntime.getTargetClass( source ) );
-
-        for ( Enumeration e = elementsAccessor.getElements( source ); e.hasMoreElements(); )
-        {
-
-            answer.add( expr.getValue( context, e.nextElement() ) );
-        }
-
-        return answer;
+        return OgnlRuntime.project( context, source, children[0] );
     }
 
     public String toGetSourceString( OgnlContext context, Object target )
     {
-        throw new UnsupportedCompilationException( "Projection expressions not supported as native java yet." );
+        return OgnlRuntime.getCollectionOperationSource( context, target, this, "project" );
     }
 
     public String toSetSourceString( OgnlContext context, Object target )
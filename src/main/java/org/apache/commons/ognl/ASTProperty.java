@@ -35,9 +35,11 @@ public class ASTProperty
 {
     private boolean indexedAccess;
 
-    private Class getterClass;
+    private volatile Class getterClass;
 
-    private Class setterClass;
+    private volatile Class setterClass;
+
+    private transient volatile CallSiteCache callSite;
 
     public ASTProperty( int id )
     {
@@ -109,7 +111,15 @@ public class ASTProperty
     {
         Object property = getProperty( context, source );
 
-        Object result = OgnlRuntime.getProperty( context, source, property );
+        Object result;
+        if ( property instanceof String && !isIndexedAccess() )
+        {
+            result = getCallSite().getProperty( context, source, (String) property );
+        }
+        else
+        {
+            result = OgnlRuntime.getProperty( context, source, property );
+        }
 
         if ( result == null )
         {
@@ -121,6 +131,16 @@ public class ASTProperty
         return result;
     }
 
+    private CallSiteCache getCallSite()
+    {
+        CallSiteCache result = callSite;
+        if ( result == null )
+        {
+            callSite = result = new CallSiteCache();
+        }
+        return result;
+    }
+
     protected void setValueBody( OgnlContext context, Object target, Object value )
         throws OgnlException
     {
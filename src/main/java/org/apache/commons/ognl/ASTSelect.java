@@ -21,10 +21,6 @@ package org.apache.commons.ognl;
 
 import org.apache.commons.ognl.enhance.UnsupportedCompilationException;
 
-import java.util.ArrayList;
-import java.util.Enumeration;
-import java.util.List;
-
 /**
  */
 class ASTSelect
@@ -44,27 +40,12 @@ class ASTSelect
     protected Object getValueBody( OgnlContext context, Object source )
         throws OgnlException
     {
-        Node expr = children[0];
-        List answer = new ArrayList();
-
-        ElementsAccessor elementsAccessor = OgnlRuntime.getElementsAccessor( OgnlRuntime.getTargetClass( source ) );
-
-        for ( Enumeration e = elementsAccessor.getElements( source ); e.hasMoreElements(); )
-        {
-            Object next = e.nextElement();
-
-            if ( OgnlOps.booleanValue( expr.getValue( context, next ) ) )
-            {
-                answer.add( next );
-            }
-        }
-
-        return answer;
+        return OgnlRuntime.select( context, source, children[0] );
     }
 
     public String toGetSourceString( OgnlContext context, Object target )
     {
-        throw new UnsupportedCompilationException( "Eval expressions not supported as native java yet." );
+        return OgnlRuntime.getCollectionOperationSource( context, target, this, "select" );
     }
 
     public String toSetSourceString( OgnlContext context, Object target )
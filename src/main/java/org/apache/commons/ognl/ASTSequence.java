@@ -28,11 +28,11 @@ public class ASTSequence
     extends SimpleNode
     implements NodeType, OrderedReturn
 {
-    private Class getterClass;
+    private volatile Class getterClass;
 
-    private String lastExpression;
+    private volatile String lastExpression;
 
-    private String coreExpression;
+    private volatile String coreExpression;
 
     public ASTSequence( int id )
     {
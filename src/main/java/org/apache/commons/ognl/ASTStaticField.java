@@ -19,7 +19,10 @@ package org.apache.commons.ognl;
  * under the License.
  */
 
+import org.apache.commons.ognl.internal.MemberHandle;
+
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
 
 /**
@@ -33,7 +36,11 @@ public class ASTStaticField
 
     private String fieldName;
 
-    private Class getterClass;
+    private volatile Class getterClass;
+
+    private transient volatile ClassBinding classBinding;
+
+    private transient volatile FieldBinding fieldBinding;
 
     public ASTStaticField( int id )
     {
@@ -55,7 +62,78 @@ public class ASTStaticField
     protected Object getValueBody( OgnlContext context, Object source )
         throws OgnlException
     {
-        return OgnlRuntime.getStaticField( context, className, fieldName );
+        Throwable cause;
+        try
+        {
+            ClassBinding binding = classBinding;
+            if ( binding == null )
+            {
+                classBinding = binding = new ClassBinding( className );
+            }
+            Class<?> clazz = binding.get( context );
+
+            FieldBinding field = fieldBinding;
+            if ( field == null || field.owner != clazz )
+            {
+                fieldBinding = field = bindField( clazz );
+            }
+            return field.get();
+        }
+        catch ( ClassNotFoundException | IllegalAccessException | SecurityException | NoSuchFieldException e )
+        {
+            cause = e;
+        }
+        catch ( InvocationTargetException e )
+        {
+            cause = e.getTargetException();
+        }
+
+        throw new OgnlException( "Could not get static field " + fieldName + " from class " + className, cause );
+    }
+
+    /**
+     * Resolves the field as {@link OgnlRuntime#getStaticField(OgnlContext, String, String)} does.
+     */
+    private FieldBinding bindField( Class<?> clazz )
+        throws OgnlException, IllegalAccessException, NoSuchFieldException
+    {
+        /*
+         * Check for virtual static field "class"; this cannot interfere with normal static fields because it is a
+         * reserved word.
+         */
+        if ( "class".equals( fieldName ) )
+        {
+            return new FieldBinding( clazz, clazz, null );
+        }
+        if ( clazz.isEnum() )
+        {
+            return new FieldBinding( clazz, getEnumConstant( clazz, fieldName ), null );
+        }
+        Field field = clazz.getField( fieldName );
+        if ( !Modifier.isStatic( field.getModifiers() ) )
+        {
+            throw new OgnlException( "Field " + fieldName + " of class " + className + " is not static" );
+        }
+        if ( Modifier.isFinal( field.getModifiers() ) )
+        {
+            return new FieldBinding( clazz, field.get( null ), null );
+        }
+        return new FieldBinding( clazz, null, field );
+    }
+
+    /**
+     * Gets the constant of an enum by its name, as {@link Enum#valueOf(Class, String)} does.
+     */
+    private static Object getEnumConstant( Class<?> enumClass, String name )
+    {
+        for ( Object constant : enumClass.getEnumConstants() )
+        {
+            if ( ( (Enum<?>) constant ).name().equals( name ) )
+            {
+                return constant;
+            }
+        }
+        throw new IllegalArgumentException( "No enum constant " + enumClass.getCanonicalName() + "." + name );
     }
 
     public boolean isNodeConstant( OgnlContext context )
@@ -217,4 +295,42 @@ public class ASTStaticField
     {
         return className;
     }
+
+    /**
+     * The value of the virtual field class, of an enum constant or of a final field, read once; other fields are read
+     * on each evaluation, through a handle when they are public members of a public class.
+     */
+    private static final class FieldBinding
+    {
+
+        final Class<?> owner;
+
+        final Object value;
+
+        final Field field;
+
+        final MemberHandle handle;
+
+        FieldBinding( Class<?> owner, Object value, Field field )
+        {
+            this.owner = owner;
+            this.value = value;
+            this.field = field;
+            handle = ( field != null ) ? MemberHandle.forStaticFieldGetter( field ) : null;
+        }
+
+        Object get()
+            throws IllegalAccessException, InvocationTargetException
+        {
+            if ( field == null )
+            {
+                return value;
+            }
+            if ( handle != null && handle.isApplicable( null, OgnlRuntime.NoArguments ) )
+            {
+                return handle.invoke( null, OgnlRuntime.NoArguments );
+            }
+            return field.get( null );
+        }
+    }
 }
@@ -36,7 +36,11 @@ public class ASTStaticMethod
 
     private String methodName;
 
-    private Class getterClass;
+    private volatile Class getterClass;
+
+    private transient volatile ClassBinding classBinding;
+
+    private transient volatile CallSiteCache callSite;
 
     public ASTStaticMethod( int id )
     {
@@ -60,15 +64,40 @@ public class ASTStaticMethod
     protected Object getValueBody( OgnlContext context, Object source )
         throws OgnlException
     {
-        Object[] args = new Object[jjtGetNumChildren()];
-        Object root = context.getRoot();
+        Object[] args = context.acquireArguments( jjtGetNumChildren() );
 
-        for ( int i = 0, icount = args.length; i < icount; ++i )
+        try
         {
-            args[i] = children[i].getValue( context, root );
-        }
+            Object root = context.getRoot();
+
+            for ( int i = 0, icount = args.length; i < icount; ++i )
+            {
+                args[i] = children[i].getValue( context, root );
+            }
+
+            ClassBinding binding = classBinding;
+            CallSiteCache cache = callSite;
+            if ( binding == null || cache == null )
+            {
+                classBinding = binding = new ClassBinding( className );
+                callSite = cache = new CallSiteCache();
+            }
 
-        return OgnlRuntime.callStaticMethod( context, className, methodName, args );
+            Class<?> targetClass;
+            try
+            {
+                targetClass = binding.get( context );
+            }
+            catch ( ClassNotFoundException ex )
+            {
+                throw new MethodFailedException( className, methodName, ex );
+            }
+            return cache.callStaticMethod( context, targetClass, methodName, args );
+        }
+        finally
+        {
+            context.releaseArguments( args );
+        }
     }
 
     public Class getGetterClass()
@@ -19,6 +19,7 @@ package org.apache.commons.ognl;
  * under the License.
  */
 
+import org.apache.commons.ognl.enhance.ExpressionCompiler;
 import org.apache.commons.ognl.enhance.UnsupportedCompilationException;
 
 /**
@@ -51,7 +52,43 @@ public class ASTThisVarRef
 
     public String toGetSourceString( OgnlContext context, Object target )
     {
-        throw new UnsupportedCompilationException( "Unable to compile this references." );
+        Node expression = (Node) context.get( ExpressionCompiler.COMPILED_EXPRESSION );
+        Object root = context.getRoot();
+        if ( context.get( ExpressionCompiler.ELEMENT_EXPRESSION ) == null || expression == null || root == null
+            || !isRootReference( expression ) )
+        {
+            throw new UnsupportedCompilationException( "Unable to compile this references." );
+        }
+
+        // operators evaluate their operands on their own source, which at the top of the expression is the root
+        context.setCurrentType( root.getClass() );
+        context.setCurrentAccessor( context.getClass() );
+        context.setCurrentObject( root );
+
+        return "((" + OgnlRuntime.getCompiler( context ).getInterfaceClass( root.getClass() ).getName() + ")$2)";
+    }
+
+    /**
+     * Tells whether this reference is reached from the given node through operators only, evaluating to the same
+     * object as the node.
+     */
+    private boolean isRootReference( Node node )
+    {
+        if ( node == this )
+        {
+            return true;
+        }
+        if ( node instanceof ExpressionNode )
+        {
+            for ( int i = 0; i < node.jjtGetNumChildren(); i++ )
+            {
+                if ( isRootReference( node.jjtGetChild( i ) ) )
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     public String toSetSourceString( OgnlContext context, Object target )
@@ -31,11 +31,16 @@ public class ASTVarRef
 
     private String name;
 
-    protected Class getterClass;
+    /**
+     * One more than the slot of the context the variable is read from, -1 if it has none, 0 until looked up.
+     */
+    private transient int slot;
+
+    protected volatile Class getterClass;
 
-    protected String core;
+    protected volatile String core;
 
-    protected String last;
+    protected volatile String last;
 
     public ASTVarRef( int id )
     {
@@ -66,7 +71,13 @@ public class ASTVarRef
     protected Object getValueBody( OgnlContext context, Object source )
         throws OgnlException
     {
-        return context.get( name );
+        int s = slot;
+        if ( s == 0 )
+        {
+            s = OgnlContext.getVariableSlot( name ) + 1;
+            slot = s = ( s == 0 ) ? -1 : s;
+        }
+        return s > 0 ? context.getVariable( s - 1, name ) : context.get( name );
     }
 
     protected void setValueBody( OgnlContext context, Object target, Object value )
@@ -0,0 +1,183 @@
+package org.apache.commons.ognl;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link ObjectPropertyAccessor} dedicated to a single bean class, registered by {@link OgnlRuntime} for each class
+ * otherwise handled by the default accessor when {@link OgnlRuntime#setGeneratePropertyAccessors(boolean)} is on.
+ * <p>
+ * The getter and setter of each property name are looked up once and then invoked directly, after checking the
+ * {@link MemberAccess} of the context. Instances of subclasses, fields and values needing a type conversion are
+ * handled by {@link ObjectPropertyAccessor} as before.
+ * </p>
+ */
+public class BeanPropertyAccessor
+    extends ObjectPropertyAccessor
+{
+
+    /**
+     * Number of property names remembered, further names are always looked up by the superclass.
+     */
+    static final int MAXIMUM_PROPERTIES = 256;
+
+    private final Class<?> beanClass;
+
+    private final ConcurrentMap<String, Property> properties = new ConcurrentHashMap<String, Property>();
+
+    public BeanPropertyAccessor( Class<?> beanClass )
+    {
+        this.beanClass = beanClass;
+    }
+
+    public Class<?> getBeanClass()
+    {
+        return beanClass;
+    }
+
+    @Override
+    public Object getPossibleProperty( Map<String, Object> context, Object target, String name )
+        throws OgnlException
+    {
+        Property property = findProperty( target, name );
+        OgnlContext ognlContext = (OgnlContext) context;
+        if ( property != null && property.getter != null
+            && ognlContext.getMemberAccess().isAccessible( ognlContext, target, property.getter, name ) )
+        {
+            try
+            {
+                return OgnlRuntime.invokeMethod( target, property.getter, OgnlRuntime.NoArguments );
+            }
+            catch ( InvocationTargetException ex )
+            {
+                throw new OgnlException( name, ex.getTargetException() );
+            }
+            catch ( Exception ex )
+            {
+                throw new OgnlException( name, ex );
+            }
+        }
+        return super.getPossibleProperty( context, target, name );
+    }
+
+    @Override
+    public Object setPossibleProperty( Map<String, Object> context, Object target, String name, Object value )
+        throws OgnlException
+    {
+        Property property = findProperty( target, name );
+        OgnlContext ognlContext = (OgnlContext) context;
+        if ( property != null && property.accepts( value )
+            && ognlContext.getMemberAccess().isAccessible( ognlContext, target, property.setter, name ) )
+        {
+            Object[] args = ognlContext.acquireArguments( 1 );
+            args[0] = value;
+            try
+            {
+                OgnlRuntime.invokeMethod( target, property.setter, args );
+                return null;
+            }
+            catch ( InvocationTargetException ex )
+            {
+                throw new MethodFailedException( target, property.setter.getName(), ex.getTargetException() );
+            }
+            catch ( Exception ex )
+            {
+                throw new MethodFailedException( target, property.setter.getName(), ex );
+            }
+            finally
+            {
+                ognlContext.releaseArguments( args );
+            }
+        }
+        return super.setPossibleProperty( context, target, name, value );
+    }
+
+    /**
+     * Gets the accessor methods of a property of the target, null if the target isn't exactly an instance of the bean
+     * class or the property couldn't be looked up.
+     */
+    private Property findProperty( Object target, String name )
+    {
+        if ( target == null || target.getClass() != beanClass )
+        {
+            return null;
+        }
+        Property result = properties.get( name );
+        if ( result == null )
+        {
+            try
+            {
+                Method getter = OgnlRuntime.getGetMethod( null, beanClass, name );
+                if ( getter == null )
+                {
+                    getter = OgnlRuntime.getReadMethod( beanClass, name, 0 );
+                }
+                result = new Property( getter, OgnlRuntime.getSetMethod( null, beanClass, name ) );
+            }
+            catch ( Exception e )
+            {
+                // let the superclass report it
+                return null;
+            }
+            if ( properties.size() < MAXIMUM_PROPERTIES )
+            {
+                properties.putIfAbsent( name, result );
+            }
+        }
+        return result;
+    }
+
+    private static final class Property
+    {
+
+        final Method getter;
+
+        final Method setter;
+
+        /**
+         * Parameter type of the setter, primitives replaced by their wrapper class.
+         */
+        private final Class<?> valueType;
+
+        private final boolean primitive;
+
+        Property( Method getter, Method setter )
+        {
+            this.getter = getter;
+            this.setter = setter;
+            Class<?> type = ( setter == null ) ? null : setter.getParameterTypes()[0];
+            primitive = ( type != null ) && type.isPrimitive();
+            valueType = primitive ? OgnlRuntime.getPrimitiveWrapperClass( type ) : type;
+        }
+
+        /**
+         * Tells whether the setter can be invoked with the value as it is, without any conversion.
+         */
+        boolean accepts( Object value )
+        {
+            return setter != null && ( value == null ? !primitive : valueType.isInstance( value ) );
+        }
+    }
+}
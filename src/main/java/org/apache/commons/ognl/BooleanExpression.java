@@ -31,7 +31,7 @@ public abstract class BooleanExpression
 
     private static final long serialVersionUID = 8630306635724834872L;
 
-    protected Class<?> getterClass;
+    protected volatile Class<?> getterClass;
 
     public BooleanExpression( int id )
     {
@@ -0,0 +1,151 @@
+package org.apache.commons.ognl;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Member;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link MemberAccess} remembering the decisions of another one, for policies whose decisions are stable: wrapping a
+ * member access in this class states that its {@link #isAccessible(Map, Object, Member, String)} answer depends on
+ * the member alone, never on the context, target or property name, and doesn't change over time, and that its
+ * {@link #setup(Map, Object, Member, String)} only makes the accessible members accessible.
+ * <p>
+ * Each member is then checked once by the wrapped access, and the reflection object of an accessible member is made
+ * accessible on its first setup and left so, instead of being toggled on every access. Call {@link #clear()} after
+ * changing the wrapped policy.
+ * </p>
+ */
+public class CachingMemberAccess
+    implements MemberAccess
+{
+
+    /**
+     * Number of members whose decision is remembered, further members are always checked by the wrapped access.
+     */
+    public static final int MAXIMUM_DECISIONS = 4096;
+
+    /**
+     * State returned by the setup of members left accessible.
+     */
+    private static final Object GRANTED = new Object();
+
+    private final MemberAccess memberAccess;
+
+    private final ConcurrentMap<Member, Decision> decisions = new ConcurrentHashMap<Member, Decision>();
+
+    /**
+     * @param memberAccess the member access whose decisions are stable.
+     */
+    public CachingMemberAccess( MemberAccess memberAccess )
+    {
+        if ( memberAccess == null )
+        {
+            throw new IllegalArgumentException( "memberAccess cannot be null" );
+        }
+        this.memberAccess = memberAccess;
+    }
+
+    public MemberAccess getMemberAccess()
+    {
+        return memberAccess;
+    }
+
+    /**
+     * Forgets the decisions made so far.
+     */
+    public void clear()
+    {
+        decisions.clear();
+    }
+
+    public Object setup( Map<String, Object> context, Object target, Member member, String propertyName )
+    {
+        Decision decision = getDecision( context, target, member, propertyName );
+        if ( !decision.accessible || !( member instanceof AccessibleObject ) )
+        {
+            return memberAccess.setup( context, target, member, propertyName );
+        }
+        if ( decision.granted != member )
+        {
+            // equal members may be distinct reflection objects, each needing its own grant
+            try
+            {
+                ( (AccessibleObject) member ).setAccessible( true );
+            }
+            catch ( RuntimeException e )
+            {
+                return memberAccess.setup( context, target, member, propertyName );
+            }
+            decision.granted = member;
+        }
+        return GRANTED;
+    }
+
+    public void restore( Map<String, Object> context, Object target, Member member, String propertyName, Object state )
+    {
+        if ( state != GRANTED )
+        {
+            memberAccess.restore( context, target, member, propertyName, state );
+        }
+    }
+
+    public boolean isAccessible( Map<String, Object> context, Object target, Member member, String propertyName )
+    {
+        return getDecision( context, target, member, propertyName ).accessible;
+    }
+
+    private Decision getDecision( Map<String, Object> context, Object target, Member member, String propertyName )
+    {
+        Decision result = decisions.get( member );
+        if ( result == null )
+        {
+            result = new Decision( memberAccess.isAccessible( context, target, member, propertyName ) );
+            if ( decisions.size() < MAXIMUM_DECISIONS )
+            {
+                Decision previous = decisions.putIfAbsent( member, result );
+                if ( previous != null )
+                {
+                    result = previous;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static final class Decision
+    {
+
+        final boolean accessible;
+
+        /**
+         * Last reflection object of the member made accessible.
+         */
+        volatile Member granted;
+
+        Decision( boolean accessible )
+        {
+            this.accessible = accessible;
+        }
+    }
+}
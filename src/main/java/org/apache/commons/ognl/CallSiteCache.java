@@ -0,0 +1,383 @@
+package org.apache.commons.ognl;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Inline cache of an {@link ASTProperty}, {@link ASTMethod}, {@link ASTStaticMethod} or {@link ASTCtor} node,
+ * remembering the getter, method or constructor resolved for the last few receiver (and argument) classes so that
+ * evaluating the node again skips the accessor lookups and the overload resolution.
+ * <p>
+ * Only receivers handled by the default {@link ObjectPropertyAccessor} and {@link ObjectMethodAccessor} are cached,
+ * with methods and constructors accepting the arguments without conversion. The {@link MemberAccess} of the context is still checked
+ * on every call, and every other case goes through {@link OgnlRuntime} as before. Entries are dropped when
+ * {@link OgnlRuntime#clearCache()} runs or accessors are registered.
+ * </p>
+ */
+final class CallSiteCache
+{
+
+    /**
+     * Number of receiver classes remembered before the call site is considered megamorphic and stops caching.
+     */
+    static final int MAXIMUM_ENTRIES = 4;
+
+    private static final Entry[] EMPTY = new Entry[0];
+
+    /**
+     * Name the constructors of a class are cached under.
+     */
+    private static final String CONSTRUCTOR_NAME = "<init>";
+
+    private volatile Entries entries = new Entries( OgnlRuntime.getCacheGeneration(), EMPTY );
+
+    /**
+     * Gets the value of a named property, as {@link OgnlRuntime#getProperty(OgnlContext, Object, Object)} does.
+     */
+    Object getProperty( OgnlContext context, Object source, String name )
+        throws OgnlException
+    {
+        // classes are the target of their static members, looked up with their own accessors
+        if ( source != null && !( source instanceof Class ) )
+        {
+            Entry entry = find( source.getClass(), name, null );
+            if ( entry == null )
+            {
+                entry = resolveGetter( source.getClass(), name );
+            }
+            Method method = entry == null ? null : (Method) entry.member;
+            if ( method != null && OgnlRuntime.isMethodAccessible( context, source, method, name ) )
+            {
+                try
+                {
+                    return OgnlRuntime.invokeMethod( source, method, OgnlRuntime.NoArguments );
+                }
+                catch ( InvocationTargetException e )
+                {
+                    throw new OgnlException( name, e.getTargetException() );
+                }
+                catch ( IllegalAccessException e )
+                {
+                    throw new OgnlException( name, e );
+                }
+            }
+        }
+        return OgnlRuntime.getProperty( context, source, name );
+    }
+
+    /**
+     * Invokes a method of the target, as {@link OgnlRuntime#callMethod(OgnlContext, Object, String, Object[])} does.
+     */
+    Object callMethod( OgnlContext context, Object target, String methodName, Object[] args )
+        throws OgnlException
+    {
+        if ( target != null )
+        {
+            Entry entry = find( target.getClass(), methodName, args );
+            if ( entry == null )
+            {
+                entry = resolveMethod( context, target, methodName, args );
+            }
+            Method method = entry == null ? null : (Method) entry.member;
+            if ( method != null && OgnlRuntime.isMethodAccessible( context, target, method, null ) )
+            {
+                try
+                {
+                    return OgnlRuntime.invokeMethod( target, method, args );
+                }
+                catch ( InvocationTargetException e )
+                {
+                    throw new MethodFailedException( target, methodName, e.getTargetException() );
+                }
+                catch ( IllegalAccessException e )
+                {
+                    throw new MethodFailedException( target, methodName, e );
+                }
+            }
+        }
+        return OgnlRuntime.callMethod( context, target, methodName, args );
+    }
+
+    /**
+     * Invokes a static method of a class, as {@link OgnlRuntime#callStaticMethod(OgnlContext, String, String,
+     * Object[])} does once the class is resolved.
+     */
+    Object callStaticMethod( OgnlContext context, Class<?> targetClass, String methodName, Object[] args )
+        throws OgnlException
+    {
+        Entry entry = find( targetClass, methodName, args );
+        if ( entry == null )
+        {
+            entry = resolveStaticMethod( context, targetClass, methodName, args );
+        }
+        Method method = (Method) entry.member;
+        if ( method != null && OgnlRuntime.isMethodAccessible( context, targetClass, method, null ) )
+        {
+            try
+            {
+                return OgnlRuntime.invokeMethod( null, method, args );
+            }
+            catch ( InvocationTargetException e )
+            {
+                throw new MethodFailedException( targetClass, methodName, e.getTargetException() );
+            }
+            catch ( IllegalAccessException e )
+            {
+                throw new MethodFailedException( targetClass, methodName, e );
+            }
+        }
+        return OgnlRuntime.getMethodAccessor( targetClass ).callStaticMethod( context, targetClass, methodName, args );
+    }
+
+    /**
+     * Creates an instance of a class, as {@link OgnlRuntime#callConstructor(OgnlContext, Class, Object[])} does.
+     */
+    Object callConstructor( OgnlContext context, Class<?> targetClass, Object[] args )
+        throws OgnlException
+    {
+        Entry entry = find( targetClass, CONSTRUCTOR_NAME, args );
+        if ( entry == null )
+        {
+            int generation = OgnlRuntime.getCacheGeneration();
+            entry = add( generation, new Entry( targetClass, CONSTRUCTOR_NAME, args,
+                                                OgnlRuntime.getCompatibleConstructor( targetClass, args ) ) );
+        }
+        Constructor<?> constructor = (Constructor<?>) entry.member;
+        if ( constructor != null && context.getMemberAccess().isAccessible( context, targetClass, constructor, null ) )
+        {
+            try
+            {
+                return OgnlRuntime.invokeConstructor( constructor, args );
+            }
+            catch ( InvocationTargetException e )
+            {
+                throw new MethodFailedException( targetClass.getName(), "new", e.getTargetException() );
+            }
+            catch ( InstantiationException | IllegalAccessException e )
+            {
+                throw new MethodFailedException( targetClass.getName(), "new", e );
+            }
+        }
+        return OgnlRuntime.callConstructor( context, targetClass, args );
+    }
+
+    /**
+     * Returns the entry cached for the given call, whose method is null if the call can't bypass {@link OgnlRuntime},
+     * or null if the call hasn't been resolved yet.
+     */
+    private Entry find( Class<?> receiver, String name, Object[] args )
+    {
+        Entries current = entries;
+        if ( current.generation != OgnlRuntime.getCacheGeneration() )
+        {
+            return null;
+        }
+        for ( Entry entry : current.entries )
+        {
+            if ( entry.matches( receiver, name, args ) )
+            {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private Entry resolveGetter( Class<?> receiver, String name )
+        throws OgnlException
+    {
+        int generation = OgnlRuntime.getCacheGeneration();
+        Method method = null;
+        if ( OgnlRuntime.isDefaultPropertyAccessor( OgnlRuntime.getPropertyAccessor( receiver ) ) )
+        {
+            try
+            {
+                method = OgnlRuntime.getGetMethod( null, receiver, name );
+                if ( method == null )
+                {
+                    method = OgnlRuntime.getReadMethod( receiver, name, 0 );
+                }
+            }
+            catch ( Exception e )
+            {
+                // let the regular lookup report it
+                return null;
+            }
+        }
+        return add( generation, new Entry( receiver, name, null, method ) );
+    }
+
+    private Entry resolveMethod( OgnlContext context, Object target, String methodName, Object[] args )
+        throws OgnlException
+    {
+        int generation = OgnlRuntime.getCacheGeneration();
+        Class<?> receiver = target.getClass();
+        Method method = null;
+        if ( OgnlRuntime.getMethodAccessor( receiver ).getClass() == ObjectMethodAccessor.class )
+        {
+            List<Method> methods = OgnlRuntime.getMethods( receiver, methodName, false );
+            if ( methods == null || methods.isEmpty() )
+            {
+                methods = OgnlRuntime.getMethods( receiver, methodName, true );
+            }
+            Object[] actualArgs = new Object[args.length];
+            method = OgnlRuntime.getCompatibleMethod( context, target, target, null, methods, args, actualArgs );
+            if ( method != null && !isInvokedAsIs( method, args, actualArgs ) )
+            {
+                method = null;
+            }
+        }
+        return add( generation, new Entry( receiver, methodName, args, method ) );
+    }
+
+    private Entry resolveStaticMethod( OgnlContext context, Class<?> targetClass, String methodName, Object[] args )
+        throws OgnlException
+    {
+        int generation = OgnlRuntime.getCacheGeneration();
+        Method method = null;
+        if ( OgnlRuntime.getMethodAccessor( targetClass ).getClass() == ObjectMethodAccessor.class )
+        {
+            List<Method> methods = OgnlRuntime.getMethods( targetClass, methodName, true );
+            Object[] actualArgs = new Object[args.length];
+            method = OgnlRuntime.getCompatibleMethod( context, targetClass, null, null, methods, args, actualArgs );
+            if ( method != null && !isInvokedAsIs( method, args, actualArgs ) )
+            {
+                method = null;
+            }
+        }
+        return add( generation, new Entry( targetClass, methodName, args, method ) );
+    }
+
+    /**
+     * Whether the method can be invoked with the arguments of the call, without the conversions and the varargs
+     * packing of {@link OgnlRuntime#callAppropriateMethod(OgnlContext, Object, Object, String, String, List, Object[])}.
+     */
+    private static boolean isInvokedAsIs( Method method, Object[] args, Object[] actualArgs )
+    {
+        if ( method.isVarArgs() )
+        {
+            return false;
+        }
+        for ( int i = 0; i < args.length; i++ )
+        {
+            if ( actualArgs[i] != args[i] )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Entry add( int generation, Entry entry )
+    {
+        synchronized ( this )
+        {
+            Entries current = entries;
+            Entry[] previous = current.generation == generation ? current.entries : EMPTY;
+            if ( previous.length < MAXIMUM_ENTRIES && generation == OgnlRuntime.getCacheGeneration() )
+            {
+                Entry[] updated = new Entry[previous.length + 1];
+                System.arraycopy( previous, 0, updated, 0, previous.length );
+                updated[previous.length] = entry;
+                entries = new Entries( generation, updated );
+            }
+        }
+        return entry;
+    }
+
+    private static final class Entries
+    {
+
+        final int generation;
+
+        final Entry[] entries;
+
+        Entries( int generation, Entry[] entries )
+        {
+            this.generation = generation;
+            this.entries = entries;
+        }
+    }
+
+    private static final class Entry
+    {
+
+        final Class<?> receiver;
+
+        final String name;
+
+        /**
+         * Classes of the arguments, null for a property, with null elements for null arguments.
+         */
+        final Class<?>[] argumentTypes;
+
+        /**
+         * The method or constructor to invoke directly, null to go through {@link OgnlRuntime}.
+         */
+        final Member member;
+
+        Entry( Class<?> receiver, String name, Object[] args, Member member )
+        {
+            this.receiver = receiver;
+            this.name = name;
+            this.member = member;
+            if ( args == null )
+            {
+                argumentTypes = null;
+            }
+            else
+            {
+                argumentTypes = new Class<?>[args.length];
+                for ( int i = 0; i < args.length; i++ )
+                {
+                    argumentTypes[i] = args[i] == null ? null : args[i].getClass();
+                }
+            }
+        }
+
+        boolean matches( Class<?> receiver, String name, Object[] args )
+        {
+            if ( this.receiver != receiver || !this.name.equals( name ) )
+            {
+                return false;
+            }
+            if ( args == null || argumentTypes == null )
+            {
+                return args == null && argumentTypes == null;
+            }
+            if ( args.length != argumentTypes.length )
+            {
+                return false;
+            }
+            for ( int i = 0; i < args.length; i++ )
+            {
+                if ( ( args[i] == null ? null : args[i].getClass() ) != argumentTypes[i] )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
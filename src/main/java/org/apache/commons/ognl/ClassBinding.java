@@ -0,0 +1,84 @@
+package org.apache.commons.ognl;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * The class named by an {@link ASTStaticField}, {@link ASTStaticMethod} or {@link ASTCtor} node, resolved by
+ * {@link OgnlRuntime#classForName(OgnlContext, String)} on first use and then reused as long as the node is evaluated
+ * with the same {@link ClassResolver} and context class loader. The binding is dropped when
+ * {@link OgnlRuntime#clearCache()} runs.
+ */
+final class ClassBinding
+{
+
+    private final String className;
+
+    private volatile Resolution resolution;
+
+    ClassBinding( String className )
+    {
+        this.className = className;
+    }
+
+    /**
+     * Gets the class, resolving it if the resolver or the context class loader changed since the last call.
+     *
+     * @param context the context of the evaluation.
+     * @return the class.
+     * @throws ClassNotFoundException if the class can't be resolved.
+     */
+    Class<?> get( OgnlContext context )
+        throws ClassNotFoundException
+    {
+        ClassResolver resolver = ( context == null ) ? null : context.getClassResolver();
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        Resolution current = resolution;
+        if ( current != null && current.resolver == resolver && current.classLoader == classLoader
+            && current.generation == OgnlRuntime.getCacheGeneration() )
+        {
+            return current.resolvedClass;
+        }
+
+        int generation = OgnlRuntime.getCacheGeneration();
+        Class<?> result = OgnlRuntime.classForName( context, className );
+        resolution = new Resolution( generation, resolver, classLoader, result );
+        return result;
+    }
+
+    private static final class Resolution
+    {
+
+        final int generation;
+
+        final ClassResolver resolver;
+
+        final ClassLoader classLoader;
+
+        final Class<?> resolvedClass;
+
+        Resolution( int generation, ClassResolver resolver, ClassLoader classLoader, Class<?> resolvedClass )
+        {
+            this.generation = generation;
+            this.resolver = resolver;
+            this.classLoader = classLoader;
+            this.resolvedClass = resolvedClass;
+        }
+    }
+}
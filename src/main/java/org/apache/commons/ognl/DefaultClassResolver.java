@@ -19,18 +19,40 @@ package org.apache.commons.ognl;
  * under the License.
  */
 
-import java.util.HashMap;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Default class resolution. Uses ClassLoader.loadClass() to look up classes by name. It also looks in the "java.lang"
  * package
  * if the class named does not give a package specifier, allowing easier usage of these classes.
+ * <p>
+ * Classes are loaded by the context class loader of the calling thread, the system class loader if it has none. The
+ * classes found, as well as up to {@link #MAXIMUM_UNRESOLVED} names that couldn't be resolved, are remembered for
+ * each class loader, until it is garbage collected. The resolver is thread-safe.
+ * </p>
  */
 public class DefaultClassResolver
     implements ClassResolver
 {
-    private final Map<String, Class<?>> classes = new HashMap<String, Class<?>>( 101 );
+    /**
+     * Largest number of names remembered as unresolvable for each class loader.
+     */
+    public static final int MAXIMUM_UNRESOLVED = 1024;
+
+    private static final Reference<Class<?>> UNRESOLVED = new WeakReference<Class<?>>( null );
+
+    /**
+     * Partitions by class loader, which are only weakly referenced, as are the classes they hold.
+     */
+    private final Map<ClassLoader, Partition> partitions = new WeakHashMap<ClassLoader, Partition>();
+
+    private volatile Partition lastPartition;
 
     /**
      * Resolves a class for a given className
@@ -51,25 +73,98 @@ public class DefaultClassResolver
     public Class<?> classForName( String className, Map<String, Object> unused )
         throws ClassNotFoundException
     {
-        Class<?> result = classes.get( className );
+        ClassLoader classLoader = getClassLoader();
+        Partition partition = getPartition( classLoader );
+        Reference<Class<?>> known = partition.classes.get( className );
 
-        if ( result == null )
+        if ( known == UNRESOLVED )
         {
-            ClassLoader classLoader = ClassLoader.getSystemClassLoader();
+            throw new ClassNotFoundException( className );
+        }
+        Class<?> result = ( known == null ) ? null : known.get();
+        return ( result != null ) ? result : partition.resolve( classLoader, className );
+    }
+
+    private static ClassLoader getClassLoader()
+    {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return ( classLoader != null ) ? classLoader : ClassLoader.getSystemClassLoader();
+    }
+
+    private Partition getPartition( ClassLoader classLoader )
+    {
+        Partition partition = lastPartition;
+        if ( partition != null && partition.classLoader.get() == classLoader )
+        {
+            return partition;
+        }
+        synchronized ( partitions )
+        {
+            partition = partitions.get( classLoader );
+            if ( partition == null )
+            {
+                partition = new Partition( classLoader );
+                partitions.put( classLoader, partition );
+            }
+        }
+        lastPartition = partition;
+        return partition;
+    }
+
+    private static final class Partition
+    {
+        final Reference<ClassLoader> classLoader;
+
+        final ConcurrentMap<String, Reference<Class<?>>> classes =
+            new ConcurrentHashMap<String, Reference<Class<?>>>( 101 );
+
+        final AtomicInteger unresolved = new AtomicInteger();
+
+        Partition( ClassLoader classLoader )
+        {
+            this.classLoader = new WeakReference<ClassLoader>( classLoader );
+        }
+
+        Class<?> resolve( ClassLoader loader, String className )
+            throws ClassNotFoundException
+        {
+            Class<?> result;
             try
             {
-                result = classLoader.loadClass( className );
+                result = loader.loadClass( className );
             }
             catch ( ClassNotFoundException ex )
             {
-                if ( className.indexOf( '.' ) == -1 )
+                if ( className.indexOf( '.' ) != -1 )
+                {
+                    remember( className, null );
+                    throw ex;
+                }
+                try
+                {
+                    result = loader.loadClass( "java.lang." + className );
+                }
+                catch ( ClassNotFoundException ex2 )
                 {
-                    result = classLoader.loadClass( "java.lang." + className );
-                    classes.put( "java.lang." + className, result );
+                    remember( className, null );
+                    throw ex2;
                 }
+                remember( "java.lang." + className, result );
+            }
+            remember( className, result );
+            return result;
+        }
+
+        private void remember( String className, Class<?> result )
+        {
+            if ( result != null )
+            {
+                classes.put( className, new WeakReference<Class<?>>( result ) );
+            }
+            else if ( unresolved.incrementAndGet() <= MAXIMUM_UNRESOLVED )
+            {
+                classes.putIfAbsent( className, UNRESOLVED );
             }
-            classes.put( className, result );
         }
-        return result;
     }
 }
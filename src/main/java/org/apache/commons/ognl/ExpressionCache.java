@@ -0,0 +1,200 @@
+package org.apache.commons.ognl;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.ognl.internal.BoundedCache;
+import org.apache.commons.ognl.internal.CacheException;
+
+/**
+ * Bounded cache of the trees parsed from expression strings, shared by the <code>String</code> overloads of the
+ * {@link Ognl} methods (<code>getValue</code>, <code>setValue</code>, <code>isConstant</code>, ...) and by the
+ * evaluation of expressions computed as strings, such as <code>(#rules[#key])(#root)</code>, so that evaluating the
+ * same expression text again skips the parser.
+ * <p>
+ * Cached trees are evaluated concurrently and are never compiled: {@link Ognl#parseExpression(String)} and
+ * {@link Ognl#compileExpression(OgnlContext, Object, String)} keep returning fresh trees. Only a
+ * {@link org.apache.commons.ognl.enhance.TieredCompiler} installs accessors on them, bound to a single class of root.
+ * </p>
+ *
+ * @see Ognl#getExpressionCache()
+ */
+public class ExpressionCache
+{
+
+    /**
+     * System property holding the maximum number of expressions cached by default; 0 disables the cache.
+     */
+    public static final String MAXIMUM_SIZE_PROPERTY = "ognl.expressionCache.maximumSize";
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 4096;
+
+    private final BoundedCache<String, Node> cache;
+
+    /**
+     * Creates a cache holding at most {@link #MAXIMUM_SIZE_PROPERTY} expressions, {@link #DEFAULT_MAXIMUM_SIZE} if
+     * not set.
+     */
+    public ExpressionCache()
+    {
+        this( getDefaultMaximumSize() );
+    }
+
+    /**
+     * @param maximumSize the maximum number of cached expressions, 0 disables the cache.
+     */
+    public ExpressionCache( int maximumSize )
+    {
+        if ( maximumSize < 0 )
+        {
+            throw new IllegalArgumentException( "maximumSize must not be negative: " + maximumSize );
+        }
+        cache = maximumSize == 0 ? null : new BoundedCache<String, Node>( maximumSize, expression -> {
+            try
+            {
+                return (Node) Ognl.parseExpression( expression );
+            }
+            catch ( OgnlException e )
+            {
+                throw new CacheException( e );
+            }
+        } );
+    }
+
+    /**
+     * Returns the tree of the given expression, parsing and caching it on first use.
+     *
+     * @param expression The OGNL expression.
+     * @return the shared tree representation of the expression.
+     * @throws ExpressionSyntaxException if the expression is malformed
+     * @throws OgnlException if there is a pathological environmental problem
+     */
+    public Node get( String expression )
+        throws OgnlException
+    {
+        if ( cache == null )
+        {
+            return (Node) Ognl.parseExpression( expression );
+        }
+        try
+        {
+            return cache.get( expression );
+        }
+        catch ( CacheException e )
+        {
+            if ( e.getCause() instanceof OgnlException )
+            {
+                throw (OgnlException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Parses and caches the given expressions ahead of their first evaluation.
+     *
+     * @param expressions The OGNL expressions.
+     * @throws ExpressionSyntaxException if one of the expressions is malformed
+     * @throws OgnlException if there is a pathological environmental problem
+     */
+    public void preload( Iterable<String> expressions )
+        throws OgnlException
+    {
+        for ( String expression : expressions )
+        {
+            get( expression );
+        }
+    }
+
+    /**
+     * Removes the given expression from the cache.
+     *
+     * @param expression The OGNL expression.
+     */
+    public void invalidate( String expression )
+    {
+        if ( cache != null )
+        {
+            cache.put( expression, null );
+        }
+    }
+
+    /**
+     * Removes every expression from the cache.
+     */
+    public void clear()
+    {
+        if ( cache != null )
+        {
+            cache.clear();
+        }
+    }
+
+    public boolean isEnabled()
+    {
+        return cache != null;
+    }
+
+    public int getSize()
+    {
+        return cache == null ? 0 : cache.getSize();
+    }
+
+    public int getMaximumSize()
+    {
+        return cache == null ? 0 : cache.getMaximumSize();
+    }
+
+    public long getHitCount()
+    {
+        return cache == null ? 0 : cache.getHitCount();
+    }
+
+    public long getMissCount()
+    {
+        return cache == null ? 0 : cache.getMissCount();
+    }
+
+    /**
+     * @return the share of the lookups answered from the cache, 0 before the first one.
+     */
+    public double getHitRate()
+    {
+        long hits = getHitCount(), lookups = hits + getMissCount();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    public long getEvictionCount()
+    {
+        return cache == null ? 0 : cache.getEvictionCount();
+    }
+
+    private static int getDefaultMaximumSize()
+    {
+        try
+        {
+            return Integer.getInteger( MAXIMUM_SIZE_PROPERTY, DEFAULT_MAXIMUM_SIZE );
+        }
+        catch ( SecurityException ex )
+        {
+            // restricted access environment, just keep defaults
+            return DEFAULT_MAXIMUM_SIZE;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package org.apache.commons.ognl;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Rewrites a parsed tree, bottom-up, into one evaluating to the same values with fewer nodes, as
+ * {@link Ognl#simplifyExpression(Object, java.util.Map)} does:
+ * <ul>
+ * <li>constant operator subtrees, such as <code>1 + 2 * 3</code>, are replaced by an {@link ASTConst} of their
+ * value, when it is of a type literals have;</li>
+ * <li>conditions with a constant test are replaced by the branch taken;</li>
+ * <li>constant operands of <code>&amp;&amp;</code> and <code>||</code> that never stop the evaluation are dropped, as
+ * are the operands following one that always does, but one to keep setting values a no-op;</li>
+ * <li>constant elements of sequences other than the last are dropped;</li>
+ * <li>sequences, chains and boolean operators left with a single element are replaced by it.</li>
+ * </ul>
+ */
+final class ExpressionSimplifier
+{
+
+    private ExpressionSimplifier()
+    {
+    }
+
+    /**
+     * Simplifies the given node and its descendants.
+     *
+     * @param node the node.
+     * @param context the context constant subtrees are evaluated with.
+     * @return the node replacing the given one, possibly itself.
+     */
+    static Node simplify( Node node, OgnlContext context )
+    {
+        if ( !( node instanceof SimpleNode ) )
+        {
+            return node;
+        }
+
+        for ( int i = 0; i < node.jjtGetNumChildren(); i++ )
+        {
+            Node child = node.jjtGetChild( i );
+            Node simplified = simplify( child, context );
+            if ( simplified != child )
+            {
+                node.jjtAddChild( simplified, i );
+                simplified.jjtSetParent( node );
+            }
+        }
+
+        if ( node instanceof ExpressionNode )
+        {
+            ASTConst folded = fold( (ExpressionNode) node, context );
+            if ( folded != null )
+            {
+                return folded;
+            }
+        }
+        if ( node instanceof ASTTest && node.jjtGetChild( 0 ) instanceof ASTConst )
+        {
+            boolean test = OgnlOps.booleanValue( ( (ASTConst) node.jjtGetChild( 0 ) ).getValue() );
+            return node.jjtGetChild( test ? 1 : 2 );
+        }
+        if ( node instanceof ASTAnd || node instanceof ASTOr )
+        {
+            // && stops at the first false operand, || at the first true one
+            dropConstantOperands( (SimpleNode) node, node instanceof ASTOr );
+        }
+        else if ( node instanceof ASTSequence )
+        {
+            dropConstantElements( (SimpleNode) node );
+        }
+        if ( ( node instanceof ASTSequence || node instanceof ASTChain || node instanceof ASTAnd
+            || node instanceof ASTOr ) && node.jjtGetNumChildren() == 1 )
+        {
+            return node.jjtGetChild( 0 );
+        }
+        return node;
+    }
+
+    private static ASTConst fold( ExpressionNode node, OgnlContext context )
+    {
+        Object value;
+        try
+        {
+            if ( !node.isConstant( context ) )
+            {
+                return null;
+            }
+            value = node.getValue( context, null );
+        }
+        catch ( OgnlException e )
+        {
+            // left to fail when evaluated
+            return null;
+        }
+        catch ( RuntimeException e )
+        {
+            return null;
+        }
+        if ( !isLiteral( value ) )
+        {
+            return null;
+        }
+
+        ASTConst result = new ASTConst( OgnlParserTreeConstants.JJTCONST );
+        result.setValue( value );
+        return result;
+    }
+
+    /**
+     * Whether the value is of a type the parser creates constants of, which the compiler knows how to write. NaN and
+     * infinities have no literal: they would be written as the properties <code>NaN</code> and <code>Infinity</code>.
+     */
+    private static boolean isLiteral( Object value )
+    {
+        if ( value instanceof Double )
+        {
+            return !( (Double) value ).isNaN() && !( (Double) value ).isInfinite();
+        }
+        if ( value instanceof Float )
+        {
+            return !( (Float) value ).isNaN() && !( (Float) value ).isInfinite();
+        }
+        return value == null || value instanceof String || value instanceof Boolean || value instanceof Character
+            || value instanceof Integer || value instanceof Long || value instanceof BigInteger
+            || value instanceof BigDecimal;
+    }
+
+    private static void dropConstantOperands( SimpleNode node, boolean stopWhenTrue )
+    {
+        Node[] children = node.children;
+        int last = children.length - 1, count = 0;
+        Node[] kept = new Node[children.length];
+
+        for ( int i = 0; i <= last; i++ )
+        {
+            Node child = children[i];
+            if ( i != last && child instanceof ASTConst )
+            {
+                if ( OgnlOps.booleanValue( ( (ASTConst) child ).getValue() ) != stopWhenTrue )
+                {
+                    continue;
+                }
+                // never evaluated past this one: keep a single operand after it so that it isn't the last, which
+                // would be set rather than stop the setting
+                kept[count++] = child;
+                kept[count++] = children[i + 1];
+                break;
+            }
+            kept[count++] = child;
+        }
+        replaceChildren( node, kept, count );
+    }
+
+    private static void dropConstantElements( SimpleNode node )
+    {
+        Node[] children = node.children;
+        int last = children.length - 1, count = 0;
+        Node[] kept = new Node[children.length];
+
+        for ( int i = 0; i <= last; i++ )
+        {
+            if ( i == last || !( children[i] instanceof ASTConst ) )
+            {
+                kept[count++] = children[i];
+            }
+        }
+        replaceChildren( node, kept, count );
+    }
+
+    private static void replaceChildren( SimpleNode node, Node[] kept, int count )
+    {
+        if ( count < node.children.length )
+        {
+            Node[] children = new Node[count];
+            System.arraycopy( kept, 0, children, 0, count );
+            node.children = children;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package org.apache.commons.ognl;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Unmodifiable list view returned by selections and projections when {@link OgnlContext#getLazyCollections()} is set:
+ * the element expression is only evaluated while the view is iterated, element by element, so that nothing is
+ * buffered.
+ * <p>
+ * Each iteration enumerates the source again through its {@link ElementsAccessor} and evaluates the expression with
+ * the context the view was created with. Selections and projections chained onto a view iterate it in turn, fusing the
+ * whole chain into a single pass over the original source. {@link #size()} of a projection doesn't evaluate the
+ * expression at all, nor does {@link #get(int)} of a projection for the elements before the index. Equality and hash
+ * code are the ones of a {@link List}; list iterators and sub lists work on a copy of the elements. An
+ * {@link OgnlException} raised by the expression is thrown wrapped in an {@link UndeclaredThrowableException}.
+ * </p>
+ */
+public final class LazyCollection
+    extends AbstractList<Object>
+{
+
+    private final OgnlContext context;
+
+    private final Object source;
+
+    private final Node expression;
+
+    private final boolean selection;
+
+    LazyCollection( OgnlContext context, Object source, Node expression, boolean selection )
+    {
+        this.context = context;
+        this.source = source;
+        this.expression = expression;
+        this.selection = selection;
+    }
+
+    @Override
+    public Iterator<Object> iterator()
+    {
+        final Enumeration<?> elements = getSourceElements();
+        return new Iterator<Object>()
+        {
+            private boolean ready;
+
+            private Object next;
+
+            public boolean hasNext()
+            {
+                while ( !ready && elements.hasMoreElements() )
+                {
+                    Object element = elements.nextElement();
+                    Object value = evaluate( element );
+                    if ( !selection )
+                    {
+                        next = value;
+                        ready = true;
+                    }
+                    else if ( OgnlOps.booleanValue( value ) )
+                    {
+                        next = element;
+                        ready = true;
+                    }
+                }
+                return ready;
+            }
+
+            public Object next()
+            {
+                if ( !hasNext() )
+                {
+                    throw new NoSuchElementException();
+                }
+                ready = false;
+                Object result = next;
+                next = null;
+                return result;
+            }
+
+            public void remove()
+            {
+                throw new UnsupportedOperationException( "remove" );
+            }
+        };
+    }
+
+    @Override
+    public int size()
+    {
+        if ( selection )
+        {
+            int size = 0;
+            for ( Iterator<Object> i = iterator(); i.hasNext(); i.next() )
+            {
+                size++;
+            }
+            return size;
+        }
+
+        int size = 0;
+        for ( Enumeration<?> e = getSourceElements(); e.hasMoreElements(); e.nextElement() )
+        {
+            size++;
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return selection ? !iterator().hasNext() : !getSourceElements().hasMoreElements();
+    }
+
+    @Override
+    public Object get( int index )
+    {
+        if ( index >= 0 )
+        {
+            if ( selection )
+            {
+                int i = 0;
+                for ( Object element : this )
+                {
+                    if ( i++ == index )
+                    {
+                        return element;
+                    }
+                }
+            }
+            else
+            {
+                Enumeration<?> elements = getSourceElements();
+                for ( int i = 0; elements.hasMoreElements(); i++ )
+                {
+                    Object element = elements.nextElement();
+                    if ( i == index )
+                    {
+                        return evaluate( element );
+                    }
+                }
+            }
+        }
+        throw new IndexOutOfBoundsException( "Index: " + index );
+    }
+
+    @Override
+    public int indexOf( Object o )
+    {
+        int i = 0;
+        for ( Object element : this )
+        {
+            if ( o == null ? element == null : o.equals( element ) )
+            {
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    @Override
+    public ListIterator<Object> listIterator( int index )
+    {
+        return toList().listIterator( index );
+    }
+
+    @Override
+    public List<Object> subList( int fromIndex, int toIndex )
+    {
+        return toList().subList( fromIndex, toIndex );
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( o == this )
+        {
+            return true;
+        }
+        if ( !( o instanceof List ) )
+        {
+            return false;
+        }
+        // single pass over each list, the list iterators would evaluate this one element by element
+        Iterator<?> others = ( (List<?>) o ).iterator();
+        for ( Object element : this )
+        {
+            if ( !others.hasNext() )
+            {
+                return false;
+            }
+            Object other = others.next();
+            if ( element == null ? other != null : !element.equals( other ) )
+            {
+                return false;
+            }
+        }
+        return !others.hasNext();
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return super.hashCode();
+    }
+
+    /**
+     * Evaluates all the elements into an unmodifiable copy.
+     */
+    private List<Object> toList()
+    {
+        // not through toArray(), which would evaluate a selection once more for its size
+        List<Object> copy = new ArrayList<Object>();
+        for ( Object element : this )
+        {
+            copy.add( element );
+        }
+        return Collections.unmodifiableList( copy );
+    }
+
+    private Enumeration<?> getSourceElements()
+    {
+        try
+        {
+            return OgnlRuntime.getElementsAccessor( OgnlRuntime.getTargetClass( source ) ).getElements( source );
+        }
+        catch ( OgnlException e )
+        {
+            throw new UndeclaredThrowableException( e );
+        }
+    }
+
+    private Object evaluate( Object element )
+    {
+        try
+        {
+            return OgnlRuntime.evaluateElement( context, expression, element );
+        }
+        catch ( OgnlException e )
+        {
+            throw new UndeclaredThrowableException( e );
+        }
+    }
+}
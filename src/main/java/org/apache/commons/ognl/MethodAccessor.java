@@ -24,6 +24,10 @@ import java.util.Map;
 /**
  * This interface defines methods for calling methods in a target object. Methods are broken up into static and instance
  * methods for convenience. indexes into the target object, which must be an array.
+ * <p>
+ * The arguments array may be reused by the caller once the call returned: implementations must copy it rather than
+ * keep a reference to it.
+ * </p>
  */
 public interface MethodAccessor
 {
@@ -31,7 +31,7 @@ public abstract class NumericExpression
 
     private static final long serialVersionUID = -174952564587478850L;
 
-    protected Class<?> getterClass;
+    protected volatile Class<?> getterClass;
 
     public NumericExpression( int id )
     {
@@ -20,8 +20,10 @@ package org.apache.commons.ognl;
  */
 
 import org.apache.commons.ognl.enhance.ExpressionAccessor;
+import org.apache.commons.ognl.enhance.TieredCompiler;
 
 import java.io.StringReader;
+import java.lang.reflect.UndeclaredThrowableException;
 import java.util.Map;
 
 /**
@@ -94,6 +96,33 @@ import java.util.Map;
 public abstract class Ognl
 {
 
+    private static volatile ExpressionCache expressionCache = new ExpressionCache();
+
+    /**
+     * Returns the cache of parsed expressions used by the methods taking the expression as a <code>String</code>.
+     *
+     * @return the expression cache.
+     */
+    public static ExpressionCache getExpressionCache()
+    {
+        return expressionCache;
+    }
+
+    /**
+     * Replaces the cache of parsed expressions used by the methods taking the expression as a <code>String</code>;
+     * pass <code>new ExpressionCache( 0 )</code> to parse the expression on every call.
+     *
+     * @param cache the expression cache, not null.
+     */
+    public static void setExpressionCache( ExpressionCache cache )
+    {
+        if ( cache == null )
+        {
+            throw new IllegalArgumentException( "cache cannot be null" );
+        }
+        expressionCache = cache;
+    }
+
     /**
      * Parses the given OGNL expression and returns a tree representation of the expression that can be used by
      * <code>Ognl</code> static methods.
@@ -109,7 +138,12 @@ public abstract class Ognl
         try
         {
             OgnlParser parser = new OgnlParser( new StringReader( expression ) );
-            return parser.topLevelExpression();
+            Node node = parser.topLevelExpression();
+            if ( node instanceof SimpleNode )
+            {
+                ( (SimpleNode) node ).setSource( expression );
+            }
+            return node;
         }
         catch ( ParseException | TokenMgrError e )
         {
@@ -117,6 +151,45 @@ public abstract class Ognl
         }
     }
 
+    /**
+     * Simplifies a tree returned by {@link #parseExpression(String)}, before it is evaluated or compiled, into one
+     * evaluating to the same values with fewer nodes: constant subexpressions such as <code>1 + 2 * 3</code> are
+     * replaced by their value, constant conditions and boolean operands are resolved, and sequences and chains left
+     * with a single element are replaced by it. Constant subexpressions failing to evaluate are left as they are.
+     * <p>
+     * The tree is modified in place and its root may be replaced: use the returned tree.
+     * </p>
+     *
+     * @param tree The tree to simplify.
+     * @param context The context constant subexpressions are evaluated with, resolving the classes of static fields.
+     * @return The simplified tree.
+     */
+    public static Object simplifyExpression( Object tree, Map<String, Object> context )
+    {
+        OgnlContext ognlContext = (OgnlContext) addDefaultContext( null, context );
+        Node simplified = ExpressionSimplifier.simplify( (Node) tree, ognlContext );
+        if ( simplified != tree )
+        {
+            simplified.jjtSetParent( null );
+            if ( tree instanceof SimpleNode && simplified instanceof SimpleNode )
+            {
+                ( (SimpleNode) simplified ).setSource( ( (SimpleNode) tree ).getSource() );
+            }
+        }
+        return simplified;
+    }
+
+    /**
+     * Same as {@link #simplifyExpression(Object, java.util.Map)} - only the {@link Map} context is created for you.
+     *
+     * @param tree The tree to simplify.
+     * @return The simplified tree.
+     */
+    public static Object simplifyExpression( Object tree )
+    {
+        return simplifyExpression( tree, createDefaultContext( null ) );
+    }
+
     /**
      * Parses and compiles the given expression using the {@link org.apache.commons.ognl.enhance.OgnlExpressionCompiler}
      * returned from
@@ -427,14 +500,23 @@ public abstract class Ognl
         OgnlContext ognlContext = (OgnlContext) addDefaultContext( root, context );
 
         Node node = (Node) tree;
+        ExpressionAccessor accessor = node.getAccessor();
 
-        if ( node.getAccessor() != null )
+        if ( accessor != null && TieredCompiler.isApplicable( accessor, root ) )
         {
-            result = (T) node.getAccessor().get( ognlContext, root );
+            try
+            {
+                result = (T) accessor.get( ognlContext, root );
+            }
+            catch ( UndeclaredThrowableException e )
+            {
+                throw unwrap( e );
+            }
         }
         else
         {
             result = (T) node.getValue( ognlContext, root );
+            interpreted( ognlContext, node, root );
         }
 
         if ( resultType != null )
@@ -513,7 +595,7 @@ public abstract class Ognl
     public static <T> T getValue( String expression, Map<String, Object> context, Object root, Class<T> resultType )
         throws OgnlException
     {
-        return Ognl.<T> getValue( parseExpression( expression ), context, root, resultType );
+        return Ognl.<T> getValue( expressionCache.get( expression ), context, root, resultType );
     }
 
     /**
@@ -589,7 +671,7 @@ public abstract class Ognl
     public static <T> T getValue( String expression, Object root, Class<T> resultType )
         throws OgnlException
     {
-        return Ognl.<T> getValue( parseExpression( expression ), root, resultType );
+        return Ognl.<T> getValue( expressionCache.get( expression ), root, resultType );
     }
 
     /**
@@ -610,14 +692,44 @@ public abstract class Ognl
     {
         OgnlContext ognlContext = (OgnlContext) addDefaultContext( root, context );
         Node n = (Node) tree;
+        ExpressionAccessor accessor = n.getAccessor();
 
-        if ( n.getAccessor() != null )
+        if ( accessor != null && TieredCompiler.isApplicable( accessor, root ) )
         {
-            n.getAccessor().set( ognlContext, root, value );
+            try
+            {
+                accessor.set( ognlContext, root, value );
+            }
+            catch ( UndeclaredThrowableException e )
+            {
+                throw unwrap( e );
+            }
             return;
         }
 
         n.setValue( ognlContext, root, value );
+        interpreted( ognlContext, n, root );
+    }
+
+    /**
+     * Unwraps the exception an accessor failed with so that it fails as the interpreted expression would.
+     */
+    private static OgnlException unwrap( UndeclaredThrowableException e )
+    {
+        if ( e.getCause() instanceof OgnlException )
+        {
+            return (OgnlException) e.getCause();
+        }
+        throw e;
+    }
+
+    private static void interpreted( OgnlContext context, Node node, Object root )
+    {
+        TieredCompiler tieredCompiler = OgnlRuntime.getTieredCompiler();
+        if ( tieredCompiler != null )
+        {
+            tieredCompiler.interpreted( context, node, root );
+        }
     }
 
     /**
@@ -649,7 +761,7 @@ public abstract class Ognl
     public static void setValue( String expression, Map<String, Object> context, Object root, Object value )
         throws OgnlException
     {
-        setValue( parseExpression( expression ), context, root, value );
+        setValue( expressionCache.get( expression ), context, root, value );
     }
 
     /**
@@ -686,7 +798,7 @@ public abstract class Ognl
     public static void setValue( String expression, Object root, Object value )
         throws OgnlException
     {
-        setValue( parseExpression( expression ), root, value );
+        setValue( expressionCache.get( expression ), root, value );
     }
 
     /**
@@ -714,7 +826,7 @@ public abstract class Ognl
     public static boolean isConstant( String expression, Map<String, Object> context )
         throws OgnlException
     {
-        return isConstant( parseExpression( expression ), context );
+        return isConstant( expressionCache.get( expression ), context );
     }
 
     /**
@@ -740,7 +852,7 @@ public abstract class Ognl
     public static boolean isConstant( String expression )
         throws OgnlException
     {
-        return isConstant( parseExpression( expression ), createDefaultContext( null ) );
+        return isConstant( expressionCache.get( expression ), createDefaultContext( null ) );
     }
 
     public static boolean isSimpleProperty( Object tree, Map<String, Object> context )
@@ -752,7 +864,7 @@ public abstract class Ognl
     public static boolean isSimpleProperty( String expression, Map<String, Object> context )
         throws OgnlException
     {
-        return isSimpleProperty( parseExpression( expression ), context );
+        return isSimpleProperty( expressionCache.get( expression ), context );
     }
 
     public static boolean isSimpleProperty( Object tree )
@@ -764,7 +876,7 @@ public abstract class Ognl
     public static boolean isSimpleProperty( String expression )
         throws OgnlException
     {
-        return isSimpleProperty( parseExpression( expression ), createDefaultContext( null ) );
+        return isSimpleProperty( expressionCache.get( expression ), createDefaultContext( null ) );
     }
 
     public static boolean isSimpleNavigationChain( Object tree, Map<String, Object> context )
@@ -776,7 +888,7 @@ public abstract class Ognl
     public static boolean isSimpleNavigationChain( String expression, Map<String, Object> context )
         throws OgnlException
     {
-        return isSimpleNavigationChain( parseExpression( expression ), context );
+        return isSimpleNavigationChain( expressionCache.get( expression ), context );
     }
 
     public static boolean isSimpleNavigationChain( Object tree )
@@ -788,7 +900,7 @@ public abstract class Ognl
     public static boolean isSimpleNavigationChain( String expression )
         throws OgnlException
     {
-        return isSimpleNavigationChain( parseExpression( expression ), createDefaultContext( null ) );
+        return isSimpleNavigationChain( expressionCache.get( expression ), createDefaultContext( null ) );
     }
 
     /** You can't make one of these. */
@@ -25,7 +25,9 @@ import org.apache.commons.ognl.internal.entry.*;
 import java.beans.PropertyDescriptor;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.security.Permission;
 import java.util.Arrays;
 import java.util.Collection;
@@ -33,6 +35,7 @@ import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 /**
@@ -40,10 +43,81 @@ import java.util.Set;
  */
 public class OgnlCache {
 
-    private final CacheFactory cacheFactory = new HashMapCacheFactory();
+    /**
+     * System property holding the fully qualified name of the {@link CacheFactory} used by the default constructor.
+     */
+    public static final String CACHE_FACTORY_PROPERTY = "ognl.cacheFactory";
+
+    private final CacheFactory cacheFactory;
+
+    private final ClassCache<MethodAccessor> methodAccessors;
+
+    private final ClassCache<PropertyAccessor> propertyAccessors;
+
+    private final ClassCache<ElementsAccessor> elementsAccessors;
+
+    private final ClassCache<NullHandler> nullHandlers;
+
+    final ClassCache<Map<String, PropertyDescriptor>> propertyDescriptorCache;
+
+    private final ClassCache<List<Constructor<?>>> constructorCache;
+
+    private final Cache<DeclaredMethodCacheEntry, Map<String, List<Method>>> _methodCache;
+
+    private final Cache<PermissionCacheEntry, Permission> _invokePermissionCache;
+
+    private final ClassCache<Map<String, Field>> _fieldCache;
+
+    private final Cache<Method, Class<?>[]> _methodParameterTypesCache;
+
+    private final Cache<GenericMethodParameterTypeCacheEntry, Class<?>[]> _genericMethodParameterTypesCache;
+
+    private final Cache<Constructor<?>, Class<?>[]> _ctorParameterTypesCache;
 
-    private final ClassCache<MethodAccessor> methodAccessors = cacheFactory.createClassCache();
+    private final Cache<Method, MethodAccessEntryValue> _methodAccessCache;
+
+    private final MethodPermCacheEntryFactory methodPermCacheEntryFactory =
+        new MethodPermCacheEntryFactory( System.getSecurityManager() );
+
+    private final Cache<Method, Boolean> _methodPermCache;
+
+    private final Cache<AccessorMethodCacheEntry, Optional<Method>> _accessorMethodCache;
+
+    private final Cache<OverloadCacheEntry, Optional<Member>> _overloadCache;
+
+    private final Cache<Method, Method> _accessibleMethodCache;
+
+    private final Cache<Method, MemberHandle> _methodHandleCache;
+
+    private final Cache<Constructor<?>, MemberHandle> _constructorHandleCache;
+
+    private final Cache<Field, MemberHandle> _fieldGetterHandleCache;
+
+    private final Cache<Field, MemberHandle> _fieldSetterHandleCache;
+
+    /**
+     * Creates the caches through the {@link CacheFactory} named by the {@link #CACHE_FACTORY_PROPERTY} system
+     * property, or through a {@link ConcurrentHashMapCacheFactory} if the property is not set.
+     */
+    public OgnlCache()
     {
+        this( createDefaultCacheFactory() );
+    }
+
+    /**
+     * Creates the caches through the given {@link CacheFactory}.
+     *
+     * @param cacheFactory the factory used to create every internal cache.
+     */
+    public OgnlCache( CacheFactory cacheFactory )
+    {
+        if ( cacheFactory == null )
+        {
+            throw new IllegalArgumentException( "cannot set CacheFactory to null" );
+        }
+        this.cacheFactory = cacheFactory;
+
+        methodAccessors = cacheFactory.createClassCache();
         MethodAccessor methodAccessor = new ObjectMethodAccessor();
         setMethodAccessor( Object.class, methodAccessor );
         setMethodAccessor( byte[].class, methodAccessor );
@@ -54,10 +128,8 @@ public class OgnlCache {
         setMethodAccessor( float[].class, methodAccessor );
         setMethodAccessor( double[].class, methodAccessor );
         setMethodAccessor( Object[].class, methodAccessor );
-    }
 
-    private final ClassCache<PropertyAccessor> propertyAccessors = cacheFactory.createClassCache();
-    {
+        propertyAccessors = cacheFactory.createClassCache();
         PropertyAccessor propertyAccessor = new ArrayPropertyAccessor();
         setPropertyAccessor( Object.class, new ObjectPropertyAccessor() );
         setPropertyAccessor( byte[].class, propertyAccessor );
@@ -73,10 +145,8 @@ public class OgnlCache {
         setPropertyAccessor( Set.class, new SetPropertyAccessor() );
         setPropertyAccessor( Iterator.class, new IteratorPropertyAccessor() );
         setPropertyAccessor( Enumeration.class, new EnumerationPropertyAccessor() );
-    }
 
-    private final ClassCache<ElementsAccessor> elementsAccessors = cacheFactory.createClassCache();
-    {
+        elementsAccessors = cacheFactory.createClassCache();
         ElementsAccessor elementsAccessor = new ArrayElementsAccessor();
         setElementsAccessor( Object.class, new ObjectElementsAccessor() );
         setElementsAccessor( byte[].class, elementsAccessor );
@@ -92,10 +162,8 @@ public class OgnlCache {
         setElementsAccessor( Iterator.class, new IteratorElementsAccessor() );
         setElementsAccessor( Enumeration.class, new EnumerationElementsAccessor() );
         setElementsAccessor( Number.class, new NumberElementsAccessor() );
-    }
 
-    private final ClassCache<NullHandler> nullHandlers = cacheFactory.createClassCache( );
-    {
+        nullHandlers = cacheFactory.createClassCache();
         NullHandler nullHandler = new ObjectNullHandler();
         setNullHandler( Object.class, nullHandler );
         setNullHandler( byte[].class, nullHandler );
@@ -106,39 +174,67 @@ public class OgnlCache {
         setNullHandler( float[].class, nullHandler );
         setNullHandler( double[].class, nullHandler );
         setNullHandler( Object[].class, nullHandler );
-    }
-
-    final ClassCache<Map<String, PropertyDescriptor>> propertyDescriptorCache =
-        cacheFactory.createClassCache( new PropertyDescriptorCacheEntryFactory() );
-
-    private final ClassCache<List<Constructor<?>>> constructorCache =
-        cacheFactory.createClassCache(key -> Arrays.<Constructor<?>>asList( key.getConstructors() ));
-
-    private final Cache<DeclaredMethodCacheEntry, Map<String, List<Method>>> _methodCache =
-        cacheFactory.createCache( new DeclaredMethodCacheEntryFactory() );
-
-    private final Cache<PermissionCacheEntry, Permission> _invokePermissionCache =
-        cacheFactory.createCache( new PermissionCacheEntryFactory() );
-
-    private final ClassCache<Map<String, Field>> _fieldCache =
-        cacheFactory.createClassCache( new FieldCacheEntryFactory() );
 
-    private final Cache<Method, Class<?>[]> _methodParameterTypesCache =
-        cacheFactory.createCache(Method::getParameterTypes);
-
-    private final Cache<GenericMethodParameterTypeCacheEntry, Class<?>[]> _genericMethodParameterTypesCache =
-        cacheFactory.createCache( new GenericMethodParameterTypeFactory() );
-
-    private final Cache<Constructor<?>, Class<?>[]> _ctorParameterTypesCache =
-        cacheFactory.createCache(Constructor::getParameterTypes);
-
-    private final Cache<Method, MethodAccessEntryValue> _methodAccessCache =
-        cacheFactory.createCache( new MethodAccessCacheEntryFactory( ) );
+        propertyDescriptorCache = cacheFactory.createClassCache( new PropertyDescriptorCacheEntryFactory() );
+        constructorCache =
+            cacheFactory.createClassCache( key -> Arrays.<Constructor<?>>asList( key.getConstructors() ) );
+        _methodCache = cacheFactory.createCache( new DeclaredMethodCacheEntryFactory() );
+        _invokePermissionCache = cacheFactory.createCache( new PermissionCacheEntryFactory() );
+        _fieldCache = cacheFactory.createClassCache( new FieldCacheEntryFactory() );
+        _methodParameterTypesCache = cacheFactory.createCache( Method::getParameterTypes );
+        _genericMethodParameterTypesCache = cacheFactory.createCache( new GenericMethodParameterTypeFactory() );
+        _ctorParameterTypesCache = cacheFactory.createCache( Constructor::getParameterTypes );
+        _methodAccessCache = cacheFactory.createCache( new MethodAccessCacheEntryFactory() );
+        _methodPermCache = cacheFactory.createCache( methodPermCacheEntryFactory );
+        _accessorMethodCache = cacheFactory.createCache( key -> Optional.ofNullable(
+            key.type == AccessorMethodCacheEntry.AccessorType.READ
+                ? OgnlRuntime.findReadMethod( key.targetClass, key.name, key.numParms )
+                : OgnlRuntime.findWriteMethod( key.targetClass, key.name, key.numParms ) ) );
+        _overloadCache =
+            cacheFactory.createCache( key -> Optional.ofNullable( OgnlRuntime.findCompatibleMember( key ) ) );
+        _accessibleMethodCache = cacheFactory.createCache( OgnlCache::createAccessibleMethod );
+        _methodHandleCache = cacheFactory.createCache( method -> {
+            Method accessible = getAccessibleMethod( method );
+            return accessible == method ? MemberHandle.forMethod( method )
+                : MemberHandle.forAccessibleMethod( accessible );
+        } );
+        _constructorHandleCache = cacheFactory.createCache( MemberHandle::forConstructor );
+        _fieldGetterHandleCache = cacheFactory.createCache( MemberHandle::forFieldGetter );
+        _fieldSetterHandleCache = cacheFactory.createCache( MemberHandle::forFieldSetter );
+    }
 
-    private final MethodPermCacheEntryFactory methodPermCacheEntryFactory =
-        new MethodPermCacheEntryFactory( System.getSecurityManager() );
+    private static CacheFactory createDefaultCacheFactory()
+    {
+        String className = null;
+        try
+        {
+            className = System.getProperty( CACHE_FACTORY_PROPERTY );
+        }
+        catch ( SecurityException ex )
+        {
+            // restricted access environment, just keep defaults
+        }
+        if ( className == null || className.trim().length() == 0 )
+        {
+            return new ConcurrentHashMapCacheFactory();
+        }
+        try
+        {
+            return (CacheFactory) Class.forName( className.trim() ).getDeclaredConstructor().newInstance();
+        }
+        catch ( Exception e )
+        {
+            throw new IllegalArgumentException( "Unable to create the CacheFactory " + className, e );
+        }
+    }
 
-    private final Cache<Method, Boolean> _methodPermCache = cacheFactory.createCache( methodPermCacheEntryFactory );
+    /**
+     * @return the factory every internal cache has been created with.
+     */
+    public CacheFactory getCacheFactory()
+    {
+        return cacheFactory;
+    }
 
     public Class<?>[] getMethodParameterTypes( Method method ) throws CacheException {
         return _methodParameterTypesCache.get( method );
@@ -231,6 +327,89 @@ public class OgnlCache {
         return _methodAccessCache.get( method );
     }
 
+    /**
+     * Returns the read or write method found by name, remembering the classes without any.
+     *
+     * @param key the class, name, number of parameters and kind of method looked up.
+     * @return the method, null if there is none.
+     */
+    public Method getAccessorMethod( AccessorMethodCacheEntry key ) throws CacheException
+    {
+        return _accessorMethodCache.get( key ).orElse( null );
+    }
+
+    /**
+     * Returns the most specific of the methods or constructors accepting arguments of the given classes without
+     * conversion.
+     *
+     * @param key the target class, candidate members and argument classes.
+     * @return the member, null if the arguments have to be converted.
+     */
+    public Member getCompatibleMember( OverloadCacheEntry key ) throws CacheException
+    {
+        return _overloadCache.get( key ).orElse( null );
+    }
+
+    /**
+     * Returns a copy of a method that isn't public made accessible once, so that invoking it never changes the
+     * accessibility of the method shared with other callers. The copy grants access to the method without checking it:
+     * it must only be invoked once the {@link MemberAccess} of the caller allowed it.
+     *
+     * @param method the method.
+     * @return the accessible copy, or the method itself if it is public or can't be made accessible.
+     */
+    public Method getAccessibleMethod( Method method ) throws CacheException
+    {
+        return _accessibleMethodCache.get( method );
+    }
+
+    private static Method createAccessibleMethod( Method method )
+    {
+        if ( Modifier.isPublic( method.getModifiers() )
+            && Modifier.isPublic( method.getDeclaringClass().getModifiers() ) )
+        {
+            return method;
+        }
+        try
+        {
+            Method copy = method.getDeclaringClass().getDeclaredMethod( method.getName(), method.getParameterTypes() );
+            copy.setAccessible( true );
+            return copy;
+        }
+        catch ( NoSuchMethodException | RuntimeException e )
+        {
+            // denied by a security manager or by the module of the class
+            return method;
+        }
+    }
+
+    /**
+     * Returns the handle invoking a method, resolved from its {@link #getAccessibleMethod(Method) accessible copy} if
+     * it isn't public.
+     *
+     * @param method the method.
+     * @return the handle, never null but possibly not applicable to anything.
+     */
+    public MemberHandle getMethodHandle( Method method ) throws CacheException
+    {
+        return _methodHandleCache.get( method );
+    }
+
+    public MemberHandle getConstructorHandle( Constructor<?> constructor ) throws CacheException
+    {
+        return _constructorHandleCache.get( constructor );
+    }
+
+    public MemberHandle getFieldGetterHandle( Field field ) throws CacheException
+    {
+        return _fieldGetterHandleCache.get( field );
+    }
+
+    public MemberHandle getFieldSetterHandle( Field field ) throws CacheException
+    {
+        return _fieldSetterHandleCache.get( field );
+    }
+
     public void clear() {
         _methodParameterTypesCache.clear();
         _ctorParameterTypesCache.clear();
@@ -240,6 +419,13 @@ public class OgnlCache {
         _invokePermissionCache.clear();
         _fieldCache.clear();
         _methodAccessCache.clear();
+        _accessorMethodCache.clear();
+        _overloadCache.clear();
+        _accessibleMethodCache.clear();
+        _methodHandleCache.clear();
+        _constructorHandleCache.clear();
+        _fieldGetterHandleCache.clear();
+        _fieldSetterHandleCache.clear();
     }
 
     public ElementsAccessor getElementsAccessor( Class<?> clazz ) throws OgnlException
@@ -21,13 +21,15 @@ package org.apache.commons.ognl;
 
 import org.apache.commons.ognl.enhance.LocalReference;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * This class defines the execution context for an OGNL expression
@@ -54,19 +56,48 @@ public class OgnlContext
 
     public static final String MEMBER_ACCESS_CONTEXT_KEY = "_memberAccess";
 
+    public static final String PARALLEL_THRESHOLD_CONTEXT_KEY = "_parallelThreshold";
+
+    public static final String LAZY_COLLECTIONS_CONTEXT_KEY = "_lazyCollections";
+
     private static final String PROPERTY_KEY_PREFIX = "ognl";
 
     private static boolean defaultTraceEvaluations;
 
     private static boolean defaultKeepLastEvaluation;
 
+    private static int defaultParallelThreshold;
+
+    private static boolean defaultLazyCollections;
+
+    /**
+     * Largest number of arguments of the method calls whose argument arrays are reused.
+     */
+    static final int MAXIMUM_POOLED_ARGUMENTS = 4;
+
+    /**
+     * Number of argument arrays of each length kept for reuse, which is also the depth of nested calls served
+     * without allocation.
+     */
+    private static final int ARGUMENT_POOL_DEPTH = 8;
+
     public static final DefaultClassResolver DEFAULT_CLASS_RESOLVER = new DefaultClassResolver();
 
     public static final TypeConverter DEFAULT_TYPE_CONVERTER = new DefaultTypeConverter();
 
     public static final MemberAccess DEFAULT_MEMBER_ACCESS = new DefaultMemberAccess( false );
 
-    private static final Set<String> RESERVED_KEYS = new HashSet<String>( 11 );
+    /**
+     * Largest number of distinct variable names given a slot by {@link #getVariableSlot(String)}.
+     */
+    static final int MAXIMUM_VARIABLE_SLOTS = 1024;
+
+    private static final ConcurrentMap<String, Integer> VARIABLE_SLOTS = new ConcurrentHashMap<String, Integer>();
+
+    /**
+     * Marks the variable slots whose value must be read from the values map.
+     */
+    private static final Object UNKNOWN_VARIABLE = new Object();
 
     private Object root;
 
@@ -84,8 +115,20 @@ public class OgnlContext
 
     private boolean keepLastEvaluation = defaultKeepLastEvaluation;
 
+    private int parallelThreshold = defaultParallelThreshold;
+
+    private boolean lazyCollections = defaultLazyCollections;
+
     private Map<String, Object> values = new HashMap<String, Object>( 23 );
 
+    /**
+     * Values of the variables read by slot, {@link #UNKNOWN_VARIABLE} when not read yet or changed; null when the
+     * values map may be changed out of this context, by whoever supplied or obtained it.
+     */
+    private Object[] variables;
+
+    private boolean ownsValues = true;
+
     private ClassResolver classResolver = DEFAULT_CLASS_RESOLVER;
 
     private TypeConverter typeConverter = DEFAULT_TYPE_CONVERTER;
@@ -96,16 +139,6 @@ public class OgnlContext
     {
         String s;
 
-        RESERVED_KEYS.add( CONTEXT_CONTEXT_KEY );
-        RESERVED_KEYS.add( ROOT_CONTEXT_KEY );
-        RESERVED_KEYS.add( THIS_CONTEXT_KEY );
-        RESERVED_KEYS.add( TRACE_EVALUATIONS_CONTEXT_KEY );
-        RESERVED_KEYS.add( LAST_EVALUATION_CONTEXT_KEY );
-        RESERVED_KEYS.add( KEEP_LAST_EVALUATION_CONTEXT_KEY );
-        RESERVED_KEYS.add( CLASS_RESOLVER_CONTEXT_KEY );
-        RESERVED_KEYS.add( TYPE_CONVERTER_CONTEXT_KEY );
-        RESERVED_KEYS.add( MEMBER_ACCESS_CONTEXT_KEY );
-
         try
         {
             s = System.getProperty( PROPERTY_KEY_PREFIX + ".traceEvaluations" );
@@ -118,6 +151,20 @@ public class OgnlContext
             {
                 defaultKeepLastEvaluation = Boolean.parseBoolean( s.trim() );
             }
+            s = System.getProperty( PROPERTY_KEY_PREFIX + ".lazyCollections" );
+            if ( s != null )
+            {
+                defaultLazyCollections = Boolean.parseBoolean( s.trim() );
+            }
+            s = System.getProperty( PROPERTY_KEY_PREFIX + ".parallelThreshold" );
+            if ( s != null )
+            {
+                defaultParallelThreshold = Integer.parseInt( s.trim() );
+            }
+        }
+        catch ( NumberFormatException ex )
+        {
+            // invalid threshold, just keep defaults
         }
         catch ( SecurityException ex )
         {
@@ -133,6 +180,13 @@ public class OgnlContext
 
     private Map<String, LocalReference> localReferenceMap;
 
+    /**
+     * Argument arrays released by method calls, by length, so that calls with few arguments don't allocate one each.
+     */
+    private Object[][][] argumentPool;
+
+    private int[] argumentPoolSizes;
+
     /**
      * Constructs a new OgnlContext with the default class resolver, type converter and member access.
      */
@@ -164,6 +218,7 @@ public class OgnlContext
     public OgnlContext( Map<String, Object> values )
     {
         this.values = values;
+        ownsValues = false;
     }
 
     public OgnlContext( ClassResolver classResolver, TypeConverter typeConverter, MemberAccess memberAccess,
@@ -171,18 +226,32 @@ public class OgnlContext
     {
         this( classResolver, typeConverter, memberAccess );
         this.values = values;
+        ownsValues = false;
     }
 
     public void setValues( Map<String, Object> value )
     {
         values.putAll( value );
+        forgetVariables();
     }
 
     public Map<String, Object> getValues()
     {
+        disownValues();
         return values;
     }
 
+    /**
+     * Copies the values, unlike {@link #getValues()} without handing out the map: the variables keep being read by
+     * slot.
+     *
+     * @return a new map holding the values.
+     */
+    Map<String, Object> copyValues()
+    {
+        return new HashMap<String, Object>( values );
+    }
+
     public void setClassResolver( ClassResolver value )
     {
         if ( value == null )
@@ -291,6 +360,50 @@ public class OgnlContext
         keepLastEvaluation = value;
     }
 
+    /**
+     * Returns the minimum number of elements from which selections and projections evaluate their expression in
+     * parallel, each worker using its own copy of this context. The default is 0, meaning the evaluation is always
+     * sequential, unless the <code>ognl.parallelThreshold</code> system property says otherwise.
+     */
+    public int getParallelThreshold()
+    {
+        return parallelThreshold;
+    }
+
+    /**
+     * Sets the minimum number of elements from which selections and projections evaluate their expression in
+     * parallel, 0 to keep evaluating them sequentially. Element expressions assigning variables, whose values would
+     * not be shared between the workers, must not be evaluated in parallel.
+     */
+    public void setParallelThreshold( int value )
+    {
+        if ( value < 0 )
+        {
+            throw new IllegalArgumentException( "parallel threshold can't be negative: " + value );
+        }
+        parallelThreshold = value;
+    }
+
+    /**
+     * Returns true if selections and projections return a {@link LazyCollection}, evaluating their expression only
+     * when iterated, rather than a list of all their results. The default is false, unless the
+     * <code>ognl.lazyCollections</code> system property says otherwise.
+     */
+    public boolean getLazyCollections()
+    {
+        return lazyCollections;
+    }
+
+    /**
+     * Sets whether selections and projections return a {@link LazyCollection}, evaluating their expression only when
+     * iterated, rather than a list of all their results. Lazy results can't be indexed and take precedence over the
+     * {@link #setParallelThreshold(int) parallel evaluation}.
+     */
+    public void setLazyCollections( boolean value )
+    {
+        lazyCollections = value;
+    }
+
     public void setCurrentObject( Object value )
     {
         currentObject = value;
@@ -513,6 +626,53 @@ public class OgnlContext
         return localReferenceMap;
     }
 
+    /**
+     * Returns an array to hold the arguments of a method call, to give back with
+     * {@link #releaseArguments(Object[])} once the call returned. Arrays of up to
+     * {@link #MAXIMUM_POOLED_ARGUMENTS} elements are reused, nested calls getting distinct arrays.
+     *
+     * @param length the number of arguments.
+     * @return an array of the given length, filled with nulls.
+     */
+    Object[] acquireArguments( int length )
+    {
+        if ( length == 0 )
+        {
+            return OgnlRuntime.NoArguments;
+        }
+        if ( length <= MAXIMUM_POOLED_ARGUMENTS && argumentPool != null
+            && argumentPoolSizes[length] > 0 )
+        {
+            return argumentPool[length][--argumentPoolSizes[length]];
+        }
+        return new Object[length];
+    }
+
+    /**
+     * Gives back an array returned by {@link #acquireArguments(int)}, which must not be used anymore.
+     *
+     * @param args the array.
+     */
+    void releaseArguments( Object[] args )
+    {
+        int length = args.length;
+        if ( length == 0 || length > MAXIMUM_POOLED_ARGUMENTS )
+        {
+            return;
+        }
+        if ( argumentPool == null )
+        {
+            argumentPool = new Object[MAXIMUM_POOLED_ARGUMENTS + 1][ARGUMENT_POOL_DEPTH][];
+            argumentPoolSizes = new int[MAXIMUM_POOLED_ARGUMENTS + 1];
+        }
+        if ( argumentPoolSizes[length] < ARGUMENT_POOL_DEPTH )
+        {
+            // don't keep the arguments reachable
+            Arrays.fill( args, null );
+            argumentPool[length][argumentPoolSizes[length]++] = args;
+        }
+    }
+
     public int size()
     {
         return values.size();
@@ -535,111 +695,91 @@ public class OgnlContext
 
     public Object get( Object key )
     {
-        Object result = null;
-
-        // FIXME: complexity is O(n)
-        if ( RESERVED_KEYS.contains( key ) )
+        if ( !( key instanceof String ) )
         {
-            if ( THIS_CONTEXT_KEY.equals( key ) )
-            {
-                result = getCurrentObject();
-            }
-            else if ( ROOT_CONTEXT_KEY.equals( key ) )
-            {
-                result = getRoot();
-            }
-            else if ( CONTEXT_CONTEXT_KEY.equals( key ) )
-            {
-                result = this;
-            }
-            else if ( TRACE_EVALUATIONS_CONTEXT_KEY.equals( key ) )
-            {
-                result = getTraceEvaluations() ? Boolean.TRUE : Boolean.FALSE;
-            }
-            else if ( LAST_EVALUATION_CONTEXT_KEY.equals( key ) )
-            {
-                result = getLastEvaluation();
-            }
-            else if ( KEEP_LAST_EVALUATION_CONTEXT_KEY.equals( key ) )
-            {
-                result = getKeepLastEvaluation() ? Boolean.TRUE : Boolean.FALSE;
-            }
-            else if ( CLASS_RESOLVER_CONTEXT_KEY.equals( key ) )
-            {
-                result = getClassResolver();
-            }
-            else if ( TYPE_CONVERTER_CONTEXT_KEY.equals( key ) )
-            {
-                result = getTypeConverter();
-            }
-            else if ( MEMBER_ACCESS_CONTEXT_KEY.equals( key ) )
-            {
-                result = getMemberAccess();
-            }
+            return values.get( key );
         }
-        else
+        switch ( (String) key )
         {
-            result = values.get( key );
+            case THIS_CONTEXT_KEY:
+                return getCurrentObject();
+            case ROOT_CONTEXT_KEY:
+                return getRoot();
+            case CONTEXT_CONTEXT_KEY:
+                return this;
+            case TRACE_EVALUATIONS_CONTEXT_KEY:
+                return getTraceEvaluations() ? Boolean.TRUE : Boolean.FALSE;
+            case LAST_EVALUATION_CONTEXT_KEY:
+                return getLastEvaluation();
+            case KEEP_LAST_EVALUATION_CONTEXT_KEY:
+                return getKeepLastEvaluation() ? Boolean.TRUE : Boolean.FALSE;
+            case CLASS_RESOLVER_CONTEXT_KEY:
+                return getClassResolver();
+            case TYPE_CONVERTER_CONTEXT_KEY:
+                return getTypeConverter();
+            case MEMBER_ACCESS_CONTEXT_KEY:
+                return getMemberAccess();
+            case PARALLEL_THRESHOLD_CONTEXT_KEY:
+                return getParallelThreshold();
+            case LAZY_COLLECTIONS_CONTEXT_KEY:
+                return getLazyCollections() ? Boolean.TRUE : Boolean.FALSE;
+            default:
+                return values.get( key );
         }
-        return result;
     }
 
     public Object put( String key, Object value )
     {
-        Object result = null;
+        Object result;
 
-        // FIXME: complexity is O(n)
-        if ( RESERVED_KEYS.contains( key ) )
+        switch ( key )
         {
-            if ( CONTEXT_CONTEXT_KEY.equals( key ) )
-            {
+            case CONTEXT_CONTEXT_KEY:
                 throw new IllegalArgumentException( "can't change " + CONTEXT_CONTEXT_KEY + " in context" );
-            }
-
-            if ( THIS_CONTEXT_KEY.equals( key ) )
-            {
+            case THIS_CONTEXT_KEY:
                 result = getCurrentObject();
                 setCurrentObject( value );
-            }
-            else if ( ROOT_CONTEXT_KEY.equals( key ) )
-            {
+                break;
+            case ROOT_CONTEXT_KEY:
                 result = getRoot();
                 setRoot( value );
-            }
-            else if ( TRACE_EVALUATIONS_CONTEXT_KEY.equals( key ) )
-            {
+                break;
+            case TRACE_EVALUATIONS_CONTEXT_KEY:
                 result = getTraceEvaluations() ? Boolean.TRUE : Boolean.FALSE;
                 setTraceEvaluations( OgnlOps.booleanValue( value ) );
-            }
-            else if ( LAST_EVALUATION_CONTEXT_KEY.equals( key ) )
-            {
+                break;
+            case LAST_EVALUATION_CONTEXT_KEY:
                 result = getLastEvaluation();
                 lastEvaluation = (Evaluation) value;
-            }
-            else if ( KEEP_LAST_EVALUATION_CONTEXT_KEY.equals( key ) )
-            {
+                break;
+            case KEEP_LAST_EVALUATION_CONTEXT_KEY:
                 result = getKeepLastEvaluation() ? Boolean.TRUE : Boolean.FALSE;
                 setKeepLastEvaluation( OgnlOps.booleanValue( value ) );
-            }
-            else if ( CLASS_RESOLVER_CONTEXT_KEY.equals( key ) )
-            {
+                break;
+            case CLASS_RESOLVER_CONTEXT_KEY:
                 result = getClassResolver();
                 setClassResolver( (ClassResolver) value );
-            }
-            else if ( TYPE_CONVERTER_CONTEXT_KEY.equals( key ) )
-            {
+                break;
+            case TYPE_CONVERTER_CONTEXT_KEY:
                 result = getTypeConverter();
                 setTypeConverter( (TypeConverter) value );
-            }
-            else if ( MEMBER_ACCESS_CONTEXT_KEY.equals( key ) )
-            {
+                break;
+            case MEMBER_ACCESS_CONTEXT_KEY:
                 result = getMemberAccess();
                 setMemberAccess( (MemberAccess) value );
-            }
-        }
-        else
-        {
-            result = values.put( key, value );
+                break;
+            case PARALLEL_THRESHOLD_CONTEXT_KEY:
+                result = getParallelThreshold();
+                setParallelThreshold( (int) OgnlOps.longValue( value ) );
+                break;
+            case LAZY_COLLECTIONS_CONTEXT_KEY:
+                result = getLazyCollections() ? Boolean.TRUE : Boolean.FALSE;
+                setLazyCollections( OgnlOps.booleanValue( value ) );
+                break;
+            default:
+                result = values.put( key, value );
+                forgetVariable( key );
+                break;
         }
 
         return result;
@@ -647,53 +787,171 @@ public class OgnlContext
 
     public Object remove( Object key )
     {
-        Object result = null;
+        if ( !( key instanceof String ) )
+        {
+            return values.remove( key );
+        }
+
+        Object result;
 
-        // FIXME: complexity is O(n)
-        if ( RESERVED_KEYS.contains( key ) )
+        switch ( (String) key )
         {
-            if ( CONTEXT_CONTEXT_KEY.equals( key ) || TRACE_EVALUATIONS_CONTEXT_KEY.equals( key )
-                || KEEP_LAST_EVALUATION_CONTEXT_KEY.equals( key ) )
-            {
+            case CONTEXT_CONTEXT_KEY:
+            case TRACE_EVALUATIONS_CONTEXT_KEY:
+            case KEEP_LAST_EVALUATION_CONTEXT_KEY:
                 throw new IllegalArgumentException( "can't remove " + key + " from context" );
-            }
-
-            if ( THIS_CONTEXT_KEY.equals( key ) )
-            {
+            case THIS_CONTEXT_KEY:
                 result = getCurrentObject();
                 setCurrentObject( null );
-            }
-            else if ( ROOT_CONTEXT_KEY.equals( key ) )
-            {
+                break;
+            case ROOT_CONTEXT_KEY:
                 result = getRoot();
                 setRoot( null );
-            }
-            else if ( LAST_EVALUATION_CONTEXT_KEY.equals( key ) )
-            {
+                break;
+            case LAST_EVALUATION_CONTEXT_KEY:
                 result = lastEvaluation;
                 setLastEvaluation( null );
-            }
-            else if ( CLASS_RESOLVER_CONTEXT_KEY.equals( key ) )
-            {
+                break;
+            case CLASS_RESOLVER_CONTEXT_KEY:
                 result = getClassResolver();
                 setClassResolver( null );
-            }
-            else if ( TYPE_CONVERTER_CONTEXT_KEY.equals( key ) )
-            {
+                break;
+            case TYPE_CONVERTER_CONTEXT_KEY:
                 result = getTypeConverter();
                 setTypeConverter( null );
-            }
-            else if ( MEMBER_ACCESS_CONTEXT_KEY.equals( key ) )
-            {
+                break;
+            case MEMBER_ACCESS_CONTEXT_KEY:
                 result = getMemberAccess();
                 setMemberAccess( null );
+                break;
+            case PARALLEL_THRESHOLD_CONTEXT_KEY:
+                result = getParallelThreshold();
+                setParallelThreshold( 0 );
+                break;
+            case LAZY_COLLECTIONS_CONTEXT_KEY:
+                result = getLazyCollections() ? Boolean.TRUE : Boolean.FALSE;
+                setLazyCollections( false );
+                break;
+            default:
+                result = values.remove( key );
+                forgetVariable( (String) key );
+                break;
+        }
+        return result;
+    }
+
+    /**
+     * Gets the slot of a variable, which {@link #getVariable(int, String)} reads it from without hashing its name.
+     * Slots are shared by all contexts, so that parsed expressions can keep them.
+     *
+     * @param name the name of the variable.
+     * @return the slot, -1 for the reserved keys and once {@link #MAXIMUM_VARIABLE_SLOTS} names got one.
+     */
+    static int getVariableSlot( String name )
+    {
+        Integer slot = VARIABLE_SLOTS.get( name );
+        if ( slot == null )
+        {
+            if ( isReservedKey( name ) || VARIABLE_SLOTS.size() >= MAXIMUM_VARIABLE_SLOTS )
+            {
+                return -1;
+            }
+            synchronized ( VARIABLE_SLOTS )
+            {
+                slot = VARIABLE_SLOTS.get( name );
+                if ( slot == null )
+                {
+                    slot = VARIABLE_SLOTS.size();
+                    VARIABLE_SLOTS.put( name, slot );
+                }
             }
         }
-        else
+        return slot;
+    }
+
+    private static boolean isReservedKey( String key )
+    {
+        switch ( key )
         {
-            result = values.remove( key );
+            case CONTEXT_CONTEXT_KEY:
+            case ROOT_CONTEXT_KEY:
+            case THIS_CONTEXT_KEY:
+            case TRACE_EVALUATIONS_CONTEXT_KEY:
+            case LAST_EVALUATION_CONTEXT_KEY:
+            case KEEP_LAST_EVALUATION_CONTEXT_KEY:
+            case CLASS_RESOLVER_CONTEXT_KEY:
+            case TYPE_CONVERTER_CONTEXT_KEY:
+            case MEMBER_ACCESS_CONTEXT_KEY:
+            case PARALLEL_THRESHOLD_CONTEXT_KEY:
+            case LAZY_COLLECTIONS_CONTEXT_KEY:
+                return true;
+            default:
+                return false;
         }
-        return result;
+    }
+
+    /**
+     * Gets the value of a variable by its slot: the same as {@link #get(Object)}, but the value is only looked up
+     * in the values map the first time it is read after having been set. Subclasses, which may override
+     * {@link #get(Object)}, always go through it.
+     *
+     * @param slot the slot returned by {@link #getVariableSlot(String)} for the name, not -1.
+     * @param name the name of the variable.
+     * @return the value of the variable, null if it has none.
+     */
+    Object getVariable( int slot, String name )
+    {
+        if ( !ownsValues || getClass() != OgnlContext.class )
+        {
+            return get( name );
+        }
+        Object[] known = variables;
+        if ( known == null || slot >= known.length )
+        {
+            known = new Object[slot + 1];
+            Arrays.fill( known, UNKNOWN_VARIABLE );
+            if ( variables != null )
+            {
+                System.arraycopy( variables, 0, known, 0, variables.length );
+            }
+            variables = known;
+        }
+        Object value = known[slot];
+        if ( value == UNKNOWN_VARIABLE )
+        {
+            value = values.get( name );
+            known[slot] = value;
+        }
+        return value;
+    }
+
+    private void forgetVariable( String name )
+    {
+        if ( variables != null )
+        {
+            Integer slot = VARIABLE_SLOTS.get( name );
+            if ( slot != null && slot < variables.length )
+            {
+                variables[slot] = UNKNOWN_VARIABLE;
+            }
+        }
+    }
+
+    private void forgetVariables()
+    {
+        if ( variables != null )
+        {
+            Arrays.fill( variables, UNKNOWN_VARIABLE );
+        }
+    }
+
+    /**
+     * Stops reading variables by slot, once the values map was handed out to be changed directly.
+     */
+    private void disownValues()
+    {
+        ownsValues = false;
+        variables = null;
     }
 
     public void putAll( Map<? extends String, ?> t )
@@ -707,6 +965,7 @@ public class OgnlContext
     public void clear()
     {
         values.clear();
+        forgetVariables();
         typeStack.clear();
         accessorStack.clear();
 
@@ -725,23 +984,28 @@ public class OgnlContext
         setClassResolver( DEFAULT_CLASS_RESOLVER );
         setTypeConverter( DEFAULT_TYPE_CONVERTER );
         setMemberAccess( DEFAULT_MEMBER_ACCESS );
+        setParallelThreshold( defaultParallelThreshold );
+        setLazyCollections( defaultLazyCollections );
     }
 
     public Set<String> keySet()
     {
         /* Should root, currentObject, classResolver, typeConverter & memberAccess be included here? */
+        disownValues();
         return values.keySet();
     }
 
     public Collection<Object> values()
     {
         /* Should root, currentObject, classResolver, typeConverter & memberAccess be included here? */
+        disownValues();
         return values.values();
     }
 
     public Set<Entry<String, Object>> entrySet()
     {
         /* Should root, currentObject, classResolver, typeConverter & memberAccess be included here? */
+        disownValues();
         return values.entrySet();
     }
 
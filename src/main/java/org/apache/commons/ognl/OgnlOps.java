@@ -25,6 +25,10 @@ import java.lang.reflect.Array;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This is an abstract class with static methods that define the operations of OGNL.
@@ -33,6 +37,38 @@ public abstract class OgnlOps
     implements NumericTypes
 {
 
+    /**
+     * Magnitude from which longs are no longer all represented by distinct doubles.
+     */
+    private static final long MAX_EXACT_DOUBLE = 1L << 53;
+
+    /**
+     * Smallest value boxed by {@link #newInteger(int, long)} and {@link #newReal(int, double)} without allocation.
+     */
+    private static final int MIN_CACHED_VALUE = -128;
+
+    /**
+     * Largest value boxed by {@link #newInteger(int, long)} and {@link #newReal(int, double)} without allocation,
+     * well beyond the 127 of {@link Integer#valueOf(int)} to cover the sizes and counters expressions compute.
+     */
+    private static final int MAX_CACHED_VALUE = 1023;
+
+    private static final Integer[] INTEGERS = new Integer[MAX_CACHED_VALUE - MIN_CACHED_VALUE + 1];
+
+    private static final Long[] LONGS = new Long[INTEGERS.length];
+
+    private static final Double[] DOUBLES = new Double[INTEGERS.length];
+
+    static
+    {
+        for ( int i = 0; i < INTEGERS.length; i++ )
+        {
+            INTEGERS[i] = Integer.valueOf( i + MIN_CACHED_VALUE );
+            LONGS[i] = Long.valueOf( i + MIN_CACHED_VALUE );
+            DOUBLES[i] = Double.valueOf( i + MIN_CACHED_VALUE );
+        }
+    }
+
     /**
      * Compares two objects for equality, even if it has to convert one of them to the other type. If both objects are
      * numeric they are converted to the widest type and compared. If one is non-numeric and one is numeric the
@@ -58,6 +94,18 @@ public abstract class OgnlOps
         }
         else
         {
+            switch ( getPrimitiveType( v1, v2 ) )
+            {
+                case INT:
+                    return Integer.compare( (Integer) v1, (Integer) v2 );
+                case LONG:
+                    return Long.compare( (Long) v1, (Long) v2 );
+                case DOUBLE:
+                    return Double.compare( (Double) v1, (Double) v2 );
+                default:
+                    break;
+            }
+
             int t1 = getNumericType( v1 ), t2 = getNumericType( v2 ), type = getNumericType( t1, t2, true );
 
             switch ( type )
@@ -422,6 +470,40 @@ public abstract class OgnlOps
         return NONNUMERIC;
     }
 
+    /**
+     * Returns INT, LONG or DOUBLE if both values are Integers, Longs or Doubles, which the operators compute on the
+     * primitive values directly, and NONNUMERIC otherwise.
+     *
+     * @param v1 one argument to an operator
+     * @param v2 the other argument
+     * @return the primitive type shared by the arguments or NONNUMERIC
+     */
+    static int getPrimitiveType( Object v1, Object v2 )
+    {
+        if ( v1 == null || v2 == null )
+        {
+            return NONNUMERIC;
+        }
+        Class<?> c = v1.getClass();
+        if ( c != v2.getClass() )
+        {
+            return NONNUMERIC;
+        }
+        if ( c == Integer.class )
+        {
+            return INT;
+        }
+        if ( c == Long.class )
+        {
+            return LONG;
+        }
+        if ( c == Double.class )
+        {
+            return DOUBLE;
+        }
+        return NONNUMERIC;
+    }
+
     public static Object toArray( char value, Class<?> toType )
         throws OgnlException
     {
@@ -916,7 +998,7 @@ public abstract class OgnlOps
             case BOOL:
             case CHAR:
             case INT:
-                return (int) value;
+                return valueOf( (int) value );
 
             case FLOAT:
                 if ( (long) (float) value == value )
@@ -927,11 +1009,11 @@ public abstract class OgnlOps
             case DOUBLE:
                 if ( (long) (double) value == value )
                 {
-                    return (double) value;
+                    return valueOf( (double) value );
                 }
                 // else fall through:
             case LONG:
-                return value;
+                return valueOf( value );
 
             case BYTE:
                 return (byte) value;
@@ -959,6 +1041,36 @@ public abstract class OgnlOps
         {
             return (float) value;
         }
+        return valueOf( value );
+    }
+
+    private static Integer valueOf( int value )
+    {
+        if ( value >= MIN_CACHED_VALUE && value <= MAX_CACHED_VALUE )
+        {
+            return INTEGERS[value - MIN_CACHED_VALUE];
+        }
+        return value;
+    }
+
+    private static Long valueOf( long value )
+    {
+        if ( value >= MIN_CACHED_VALUE && value <= MAX_CACHED_VALUE )
+        {
+            return LONGS[(int) value - MIN_CACHED_VALUE];
+        }
+        return value;
+    }
+
+    private static Double valueOf( double value )
+    {
+        int integral = (int) value;
+        // -0.0 equals 0 but isn't the same Double
+        if ( integral == value && integral >= MIN_CACHED_VALUE && integral <= MAX_CACHED_VALUE
+            && ( integral != 0 || Double.doubleToRawLongBits( value ) == 0L ) )
+        {
+            return DOUBLES[integral - MIN_CACHED_VALUE];
+        }
         return value;
     }
 
@@ -1027,9 +1139,19 @@ public abstract class OgnlOps
             return false;
         }
 
+        // a hit of the lookup is final, a miss may still be equal to an element through a conversion
+        if ( isHashedSet( v2 ) && hashedSetContains( (Set<?>) v2, v1 ) )
+        {
+            return true;
+        }
+        return enumerationContains( v1, v2 );
+    }
+
+    private static boolean enumerationContains( Object v1, Object v2 )
+        throws OgnlException
+    {
         ElementsAccessor elementsAccessor = OgnlRuntime.getElementsAccessor( OgnlRuntime.getTargetClass( v2 ) );
 
-        // FIXME O(n) is there a better way?!
         for ( Enumeration<?> e = elementsAccessor.getElements( v2 ); e.hasMoreElements(); )
         {
             Object o = e.nextElement();
@@ -1043,6 +1165,75 @@ public abstract class OgnlOps
         return false;
     }
 
+    /**
+     * Tells whether the value is {@link #equal(Object, Object)} to one of the constant elements of a list literal.
+     *
+     * @param v1 the value looked up.
+     * @param elements the elements of the list, in a hashed set.
+     * @param elementClass the class of all the elements, null if they don't share the same one.
+     * @return true if an element is equal to the value.
+     * @throws OgnlException if the elements can't be enumerated.
+     */
+    static boolean in( Object v1, Set<?> elements, Class<?> elementClass )
+        throws OgnlException
+    {
+        if ( hashedSetContains( elements, v1 ) )
+        {
+            return true;
+        }
+        if ( v1 != null && v1.getClass() == elementClass && isExactlyComparable( v1 ) )
+        {
+            // only equal to an element of its own class when equals(), which the lookup answered
+            return false;
+        }
+        return enumerationContains( v1, elements );
+    }
+
+    /**
+     * Tells whether {@link #equal(Object, Object)} only holds between the given value and another instance of its
+     * class when they are equals(), which lets hashed lookups answer for it.
+     *
+     * @param value the value, not null.
+     * @return true for strings, booleans, characters, enums and integral numbers doubles represent exactly.
+     */
+    static boolean isExactlyComparable( Object value )
+    {
+        Class<?> c = value.getClass();
+        if ( c == Long.class )
+        {
+            // larger longs may have the same double value, which equal() compares last
+            long l = (Long) value;
+            return l > -MAX_EXACT_DOUBLE && l < MAX_EXACT_DOUBLE;
+        }
+        return c == String.class || c == Integer.class || c == Short.class || c == Byte.class || c == Boolean.class
+            || c == Character.class || Enum.class.isAssignableFrom( c );
+    }
+
+    /**
+     * Tells whether the given object is a set of the JDK looking its elements up by their hash code and equals().
+     */
+    private static boolean isHashedSet( Object value )
+    {
+        Class<?> c = value.getClass();
+        return c == HashSet.class || c == LinkedHashSet.class || c == ConcurrentHashMap.KeySetView.class;
+    }
+
+    /**
+     * Looks the value up in a hashed set, a null or unsupported value being reported as missing.
+     */
+    private static boolean hashedSetContains( Set<?> set, Object value )
+    {
+        try
+        {
+            return set.contains( value );
+        }
+        catch ( RuntimeException e )
+        {
+            // null or other elements not supported by the set: only the enumeration can tell
+            return false;
+        }
+    }
+
     public static Object shiftLeft( Object v1, Object v2 )
     {
         int type = getNumericType( v1 );
@@ -1079,6 +1270,18 @@ public abstract class OgnlOps
 
     public static Object add( Object v1, Object v2 )
     {
+        switch ( getPrimitiveType( v1, v2 ) )
+        {
+            case INT:
+                return valueOf( (Integer) v1 + (Integer) v2 );
+            case LONG:
+                return valueOf( (Long) v1 + (Long) v2 );
+            case DOUBLE:
+                return valueOf( (Double) v1 + (Double) v2 );
+            default:
+                break;
+        }
+
         int type = getNumericType( v1, v2, true );
         switch ( type )
         {
@@ -1106,6 +1309,18 @@ public abstract class OgnlOps
 
     public static Object subtract( Object v1, Object v2 )
     {
+        switch ( getPrimitiveType( v1, v2 ) )
+        {
+            case INT:
+                return valueOf( (Integer) v1 - (Integer) v2 );
+            case LONG:
+                return valueOf( (Long) v1 - (Long) v2 );
+            case DOUBLE:
+                return valueOf( (Double) v1 - (Double) v2 );
+            default:
+                break;
+        }
+
         int type = getNumericType( v1, v2 );
         switch ( type )
         {
@@ -1123,6 +1338,18 @@ public abstract class OgnlOps
 
     public static Object multiply( Object v1, Object v2 )
     {
+        switch ( getPrimitiveType( v1, v2 ) )
+        {
+            case INT:
+                return valueOf( (Integer) v1 * (Integer) v2 );
+            case LONG:
+                return valueOf( (Long) v1 * (Long) v2 );
+            case DOUBLE:
+                return valueOf( (Double) v1 * (Double) v2 );
+            default:
+                break;
+        }
+
         int type = getNumericType( v1, v2 );
         switch ( type )
         {
@@ -1140,6 +1367,18 @@ public abstract class OgnlOps
 
     public static Object divide( Object v1, Object v2 )
     {
+        switch ( getPrimitiveType( v1, v2 ) )
+        {
+            case INT:
+                return valueOf( (Integer) v1 / (Integer) v2 );
+            case LONG:
+                return valueOf( (Long) v1 / (Long) v2 );
+            case DOUBLE:
+                return valueOf( (Double) v1 / (Double) v2 );
+            default:
+                break;
+        }
+
         int type = getNumericType( v1, v2 );
         switch ( type )
         {
@@ -1157,6 +1396,16 @@ public abstract class OgnlOps
 
     public static Object remainder( Object v1, Object v2 )
     {
+        switch ( getPrimitiveType( v1, v2 ) )
+        {
+            case INT:
+                return valueOf( (Integer) v1 % (Integer) v2 );
+            case LONG:
+                return valueOf( (Long) v1 % (Long) v2 );
+            default:
+                break;
+        }
+
         int type = getNumericType( v1, v2 );
         switch ( type )
         {
@@ -19,12 +19,19 @@ package org.apache.commons.ognl;
  * under the License.
  */
 
+import org.apache.commons.ognl.enhance.ExpressionAccessor;
 import org.apache.commons.ognl.enhance.ExpressionCompiler;
 import org.apache.commons.ognl.enhance.OgnlExpressionCompiler;
+import org.apache.commons.ognl.enhance.TieredCompiler;
+import org.apache.commons.ognl.enhance.UnsupportedCompilationException;
 import org.apache.commons.ognl.internal.CacheException;
+import org.apache.commons.ognl.internal.CacheFactory;
+import org.apache.commons.ognl.internal.MemberHandle;
+import org.apache.commons.ognl.internal.entry.AccessorMethodCacheEntry;
 import org.apache.commons.ognl.internal.entry.DeclaredMethodCacheEntry;
 import org.apache.commons.ognl.internal.entry.GenericMethodParameterTypeCacheEntry;
 import org.apache.commons.ognl.internal.entry.MethodAccessEntryValue;
+import org.apache.commons.ognl.internal.entry.OverloadCacheEntry;
 import org.apache.commons.ognl.internal.entry.PermissionCacheEntry;
 
 import java.beans.BeanInfo;
@@ -41,13 +48,16 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Proxy;
+import java.lang.reflect.UndeclaredThrowableException;
 import java.security.Permission;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Utility class used by internal OGNL API to do various things like:
@@ -121,7 +131,13 @@ public class OgnlRuntime
      */
     private static final String NULL_OBJECT_STRING = "<null>";
 
-    static final OgnlCache cache = new OgnlCache();
+    static volatile OgnlCache cache = new OgnlCache();
+
+    /**
+     * Incremented whenever cached reflection information or registered accessors change, invalidating the
+     * {@link CallSiteCache}s of the nodes.
+     */
+    private static final AtomicInteger cacheGeneration = new AtomicInteger();
 
     private static final PrimitiveTypes primitiveTypes = new PrimitiveTypes();
 
@@ -134,6 +150,18 @@ public class OgnlRuntime
      */
     private static OgnlExpressionCompiler compiler;
 
+    /**
+     * Background compiler of hot expressions, null when disabled.
+     */
+    private static volatile TieredCompiler tieredCompiler = TieredCompiler.createDefault();
+
+    /**
+     * System property enabling the registration of a {@link BeanPropertyAccessor} for each bean class.
+     */
+    public static final String GENERATE_PROPERTY_ACCESSORS_PROPERTY = "ognl.generatePropertyAccessors";
+
+    private static volatile boolean generatePropertyAccessors = isGeneratePropertyAccessorsEnabled();
+
     /**
      * Used to provide primitive type equivalent conversions into and out of native / object types.
      */
@@ -168,6 +196,40 @@ public class OgnlRuntime
     public static void clearCache()
     {
         cache.clear();
+        cacheGeneration.incrementAndGet();
+    }
+
+    /**
+     * Returns the current generation of the cached reflection information, which changes each time the caches are
+     * cleared or accessors are registered.
+     */
+    static int getCacheGeneration()
+    {
+        return cacheGeneration.get();
+    }
+
+    /**
+     * Replaces all of the internal caches with new ones created by the given {@link CacheFactory}.
+     * <p>
+     * <strong>Warning:</strong> accessors, null handlers and the {@link ClassCacheInspector} registered so far are
+     * discarded along with the old caches, so this is meant to be invoked once at bootstrap, before any other
+     * configuration.
+     * </p>
+     *
+     * @param cacheFactory the factory used to create every internal cache.
+     * @see OgnlCache#CACHE_FACTORY_PROPERTY
+     */
+    public static void setCacheFactory( CacheFactory cacheFactory )
+    {
+        OgnlCache newCache = new OgnlCache( cacheFactory );
+        newCache.setSecurityManager( securityManager );
+        cache = newCache;
+        cacheGeneration.incrementAndGet();
+    }
+
+    public static CacheFactory getCacheFactory()
+    {
+        return cache.getCacheFactory();
     }
 
     public static String getNumericValueGetter( Class<?> type )
@@ -213,10 +275,62 @@ public class OgnlRuntime
         return compiler;
     }
 
+    /**
+     * Sets the compiler of expressions interpreted often by {@link Ognl#getValue(Object, Map, Object)} and
+     * {@link Ognl#setValue(Object, Map, Object, Object)}.
+     *
+     * @param tieredCompiler the tiered compiler, null disables tiered compilation.
+     */
+    public static void setTieredCompiler( TieredCompiler tieredCompiler )
+    {
+        OgnlRuntime.tieredCompiler = tieredCompiler;
+    }
+
+    public static TieredCompiler getTieredCompiler()
+    {
+        return tieredCompiler;
+    }
+
+    /**
+     * Sets whether each bean class otherwise handled by the default {@link ObjectPropertyAccessor} gets its own
+     * {@link BeanPropertyAccessor}, registered the first time its property accessor is requested. Accessors
+     * registered by {@link #setPropertyAccessor(Class, PropertyAccessor)} are never replaced.
+     *
+     * @param generatePropertyAccessors true to register dedicated accessors.
+     * @see #GENERATE_PROPERTY_ACCESSORS_PROPERTY
+     */
+    public static void setGeneratePropertyAccessors( boolean generatePropertyAccessors )
+    {
+        OgnlRuntime.generatePropertyAccessors = generatePropertyAccessors;
+    }
+
+    public static boolean getGeneratePropertyAccessors()
+    {
+        return generatePropertyAccessors;
+    }
+
+    private static boolean isGeneratePropertyAccessorsEnabled()
+    {
+        try
+        {
+            return Boolean.getBoolean( GENERATE_PROPERTY_ACCESSORS_PROPERTY );
+        }
+        catch ( SecurityException ex )
+        {
+            // restricted access environment, just keep defaults
+            return false;
+        }
+    }
+
     public static void compileExpression( OgnlContext context, Node expression, Object root )
         throws Exception
     {
-        getCompiler( context ).compileExpression( context, expression, root );
+        // compiling records state on the nodes of the tree: threads sharing it compile it one at a time, the
+        // compilers leaving alone a tree found compiled already
+        synchronized ( expression )
+        {
+            getCompiler( context ).compileExpression( context, expression, root );
+        }
     }
 
     /**
@@ -461,9 +575,23 @@ public class OgnlRuntime
             throw new IllegalAccessException( "Method [" + method + "] cannot be accessed." );
         }
 
+        MemberHandle handle = cache.getMethodHandle( method );
+        if ( handle.isApplicable( target, argsArray ) )
+        {
+            return handle.invoke( target, argsArray );
+        }
+
+        // arguments needing reflection's widening conversions, or members without a handle
         MethodAccessEntryValue entry = cache.getMethodAccess( method );
         if ( !entry.isAccessible() )
         {
+            // callers checked their MemberAccess, the copy spares toggling the accessibility of the shared method
+            Method accessible = cache.getAccessibleMethod( method );
+            if ( accessible != method )
+            {
+                return accessible.invoke( target, argsArray );
+            }
+
             // only synchronize method invocation if it actually requires it
             synchronized ( method )
             {
@@ -801,47 +929,149 @@ public class OgnlRuntime
                                                List<Method> methods, Object[] args, Object[] actualArgs )
 
     {
-        Method appropriateMethod = null;
-        Class<?>[] resultParameterTypes = null;
+        Method appropriateMethod = getCompatibleMethod( context, source, target, propertyName, methods, args,
+                                                        actualArgs );
 
-        if ( methods != null )
+        if ( appropriateMethod == null )
         {
-            for ( Method method : methods )
+            appropriateMethod = getConvertedMethodAndArgs( context, target, propertyName, methods, args, actualArgs );
+        }
+
+        return appropriateMethod;
+    }
+
+    /**
+     * Gets the most specific method accepting the given arguments without converting them, as
+     * {@link #getAppropriateMethod(OgnlContext, Object, Object, String, List, Object[], Object[])} does before trying
+     * conversions. Only null arguments passed to primitive parameters are converted in actualArgs.
+     *
+     * @return Best method match or null if none is compatible.
+     */
+    static Method getCompatibleMethod( OgnlContext context, Object source, Object target, String propertyName,
+                                       List<Method> methods, Object[] args, Object[] actualArgs )
+    {
+        if ( methods == null )
+        {
+            return null;
+        }
+
+        Class<?> typeClass = target != null ? target.getClass() : null;
+        if ( typeClass == null && source != null && source instanceof Class)
+        {
+            typeClass = (Class<?>) source;
+        }
+
+        OverloadCacheEntry key = new OverloadCacheEntry( typeClass, methods, getArgClasses( args ) );
+        // the cache compares member lists by identity, single methods are wrapped in a new list on each call
+        Method appropriateMethod =
+            (Method) ( methods.size() == 1 ? findCompatibleMember( key ) : cache.getCompatibleMember( key ) );
+
+        if ( appropriateMethod != null )
+        {
+            Class<?>[] mParameterTypes = findParameterTypes( typeClass, appropriateMethod );
+            System.arraycopy( args, 0, actualArgs, 0, args.length );
+
+            for ( int i = 0; i < mParameterTypes.length; i++ )
             {
-                Class<?> typeClass = target != null ? target.getClass() : null;
-                if ( typeClass == null && source != null && source instanceof Class)
+                Class<?> type = mParameterTypes[i];
+
+                if ( type.isPrimitive() && ( actualArgs[i] == null ) )
                 {
-                    typeClass = (Class<?>) source;
+                    actualArgs[i] = getConvertedType( context, source, appropriateMethod, propertyName, null, type );
                 }
+            }
+        }
 
-                Class<?>[] mParameterTypes = findParameterTypes( typeClass, method );
+        return appropriateMethod;
+    }
 
-                if ( areArgsCompatible( args, mParameterTypes, method ) &&
-                    ( ( appropriateMethod == null ) || isMoreSpecific( mParameterTypes, resultParameterTypes ) ) )
-                {
-                    appropriateMethod = method;
-                    resultParameterTypes = mParameterTypes;
-                    System.arraycopy( args, 0, actualArgs, 0, args.length );
+    /**
+     * Picks the most specific of the methods or constructors of a key accepting arguments of its classes without
+     * conversion, once per key, as {@link OgnlCache#getCompatibleMember(OverloadCacheEntry)} caches it.
+     *
+     * @return the member, null if none is compatible.
+     */
+    static Member findCompatibleMember( OverloadCacheEntry key )
+    {
+        Member result = null;
+        Class<?>[] resultParameterTypes = null;
 
-                    for ( int i = 0; i < mParameterTypes.length; i++ )
-                    {
-                        Class<?> type = mParameterTypes[i];
+        for ( Member member : key.members )
+        {
+            boolean varArgs;
+            Class<?>[] parameterTypes;
+            if ( member instanceof Method )
+            {
+                varArgs = ( (Method) member ).isVarArgs();
+                parameterTypes = findParameterTypes( key.targetClass, (Method) member );
+            }
+            else
+            {
+                // constructors are matched on their declared parameters only, as by areArgsCompatible(args, classes)
+                varArgs = false;
+                parameterTypes = getParameterTypes( (Constructor<?>) member );
+            }
 
-                        if ( type.isPrimitive() && ( actualArgs[i] == null ) )
-                        {
-                            actualArgs[i] = getConvertedType( context, source, appropriateMethod, propertyName, null, type );
-                        }
-                    }
-                }
+            if ( areArgClassesCompatible( key.argumentClasses, parameterTypes, varArgs ) && ( ( result == null )
+                || isMoreSpecific( parameterTypes, resultParameterTypes ) ) )
+            {
+                result = member;
+                resultParameterTypes = parameterTypes;
             }
         }
+        return result;
+    }
 
-        if ( appropriateMethod == null )
+    /**
+     * Same as {@link #areArgsCompatible(Object[], Class[], Method)}, given the classes of the arguments.
+     */
+    private static boolean areArgClassesCompatible( Class<?>[] argClasses, Class<?>[] classes, boolean varArgs )
+    {
+        if ( argClasses.length != classes.length && !varArgs )
         {
-            appropriateMethod = getConvertedMethodAndArgs( context, target, propertyName, methods, args, actualArgs );
+            return false;
         }
+        for ( int index = 0; index < argClasses.length; ++index )
+        {
+            if ( index >= classes.length )
+            {
+                break;
+            }
 
-        return appropriateMethod;
+            boolean result = isArgClassCompatible( argClasses[index], classes[index] );
+
+            if ( !result && varArgs && classes[index].isArray() )
+            {
+                result = isArgClassCompatible( argClasses[index], classes[index].getComponentType() );
+            }
+            if ( !result )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same as {@link #isTypeCompatible(Object, Class)}, given the class of the argument, null for a null argument.
+     */
+    private static boolean isArgClassCompatible( Class<?> argClass, Class<?> clazz )
+    {
+        if ( argClass == null )
+        {
+            return true;
+        }
+        return clazz.isPrimitive() ? getPrimitiveWrapperClass( clazz ) == argClass : clazz.isAssignableFrom( argClass );
+    }
+
+    private static Class<?>[] getArgClasses( Object[] args )
+    {
+        Class<?>[] argClasses = new Class<?>[args.length];
+        for ( int i = 0; i < args.length; i++ )
+        {
+            argClasses[i] = args[i] == null ? null : args[i].getClass();
+        }
+        return argClasses;
     }
 
     public static Object callAppropriateMethod( OgnlContext context, Object source, Object target, String methodName,
@@ -849,7 +1079,7 @@ public class OgnlRuntime
         throws MethodFailedException
     {
         Throwable cause = null;
-        Object[] actualArgs = new Object[args.length];
+        Object[] actualArgs = context == null ? new Object[args.length] : context.acquireArguments( args.length );
 
         try
         {
@@ -902,20 +1132,27 @@ public class OgnlRuntime
 
                         if ( actualArgs.length > i )
                         {
-                            List<Object> varArgsList = new ArrayList<Object>();
+                            int count = 0;
                             for ( int j = i; j < actualArgs.length; j++ )
                             {
                                 if ( actualArgs[j] != null )
                                 {
-                                    varArgsList.add( actualArgs[j] );
+                                    count++;
                                 }
                             }
 
-                            varArgs = varArgsList.toArray();
+                            varArgs = new Object[count];
+                            for ( int j = i, k = 0; k < count; j++ )
+                            {
+                                if ( actualArgs[j] != null )
+                                {
+                                    varArgs[k++] = actualArgs[j];
+                                }
+                            }
                         }
                         else
                         {
-                            varArgs = new Object[0];
+                            varArgs = NoArguments;
                         }
 
                         convertedArgs[i] = varArgs;
@@ -934,6 +1171,13 @@ public class OgnlRuntime
         {
             cause = e.getTargetException();
         }
+        finally
+        {
+            if ( context != null )
+            {
+                context.releaseArguments( actualArgs );
+            }
+        }
 
         throw new MethodFailedException( source, methodName, cause );
     }
@@ -978,32 +1222,42 @@ public class OgnlRuntime
 
     public static Object callConstructor( OgnlContext context, String className, Object[] args )
         throws OgnlException
+    {
+        Class<?> target;
+        try
+        {
+            target = classForName( context, className );
+        }
+        catch ( ClassNotFoundException e )
+        {
+            throw new MethodFailedException( className, "new", e );
+        }
+        return callConstructor( context, target, args );
+    }
+
+    /**
+     * Invokes the constructor of the given class accepting the arguments, converting them if needed.
+     *
+     * @param context the current execution context.
+     * @param target the class to instantiate.
+     * @param args the arguments.
+     * @return the new instance.
+     * @throws OgnlException if no accessible constructor accepts the arguments or the constructor fails.
+     */
+    public static Object callConstructor( OgnlContext context, Class<?> target, Object[] args )
+        throws OgnlException
     {
         Throwable cause = null;
         Object[] actualArgs = args;
 
         try
         {
-            Constructor<?> ctor = null;
-            Class<?>[] ctorParameterTypes = null;
-            Class<?> target = classForName( context, className );
-            List<Constructor<?>> constructors = getConstructors( target );
-
-            for ( Constructor<?> constructor : constructors )
-            {
-                Class<?>[] cParameterTypes = getParameterTypes( constructor );
-
-                if ( areArgsCompatible( args, cParameterTypes ) && ( ctor == null || isMoreSpecific( cParameterTypes,
-                                                                                                     ctorParameterTypes ) ) )
-                {
-                    ctor = constructor;
-                    ctorParameterTypes = cParameterTypes;
-                }
-            }
+            Constructor<?> ctor = getCompatibleConstructor( target, args );
             if ( ctor == null )
             {
                 actualArgs = new Object[args.length];
-                if ( ( ctor = getConvertedConstructorAndArgs( context, target, constructors, args, actualArgs ) ) == null )
+                if ( ( ctor = getConvertedConstructorAndArgs( context, target, getConstructors( target ), args,
+                                                              actualArgs ) ) == null )
                 {
                     throw new NoSuchMethodException();
                 }
@@ -1012,9 +1266,9 @@ public class OgnlRuntime
             {
                 throw new IllegalAccessException( "access denied to " + target.getName() + "()" );
             }
-            return ctor.newInstance( actualArgs );
+            return invokeConstructor( ctor, actualArgs );
         }
-        catch ( ClassNotFoundException | InstantiationException | IllegalAccessException | NoSuchMethodException e )
+        catch ( InstantiationException | IllegalAccessException | NoSuchMethodException e )
         {
             cause = e;
         } catch ( InvocationTargetException e )
@@ -1022,7 +1276,32 @@ public class OgnlRuntime
             cause = e.getTargetException();
         }
 
-        throw new MethodFailedException( className, "new", cause );
+        throw new MethodFailedException( target.getName(), "new", cause );
+    }
+
+    /**
+     * Gets the most specific constructor of the class accepting the arguments without conversion.
+     *
+     * @return the constructor, null if none is compatible.
+     */
+    static Constructor<?> getCompatibleConstructor( Class<?> target, Object[] args )
+    {
+        return (Constructor<?>) cache.getCompatibleMember(
+            new OverloadCacheEntry( target, getConstructors( target ), getArgClasses( args ) ) );
+    }
+
+    /**
+     * Invokes a constructor through its cached handle when the arguments allow it, by reflection otherwise.
+     */
+    static Object invokeConstructor( Constructor<?> ctor, Object[] args )
+        throws InstantiationException, IllegalAccessException, InvocationTargetException
+    {
+        MemberHandle handle = cache.getConstructorHandle( ctor );
+        if ( handle.isApplicable( null, args ) )
+        {
+            return handle.invoke( null, args );
+        }
+        return ctor.newInstance( args );
     }
 
     public static Object getMethodValue( OgnlContext context, Object target, String propertyName )
@@ -1090,9 +1369,17 @@ public class OgnlRuntime
         {
             if ( method != null )
             {
-                Object[] args = new Object[]{ value };
-                callAppropriateMethod( context, target, target, method.getName(), propertyName,
-                                       Collections.nCopies( 1, method ), args );
+                Object[] args = context.acquireArguments( 1 );
+                args[0] = value;
+                try
+                {
+                    callAppropriateMethod( context, target, target, method.getName(), propertyName,
+                                           Collections.singletonList( method ), args );
+                }
+                finally
+                {
+                    context.releaseArguments( args );
+                }
             }
             else
             {
@@ -1185,7 +1472,22 @@ public class OgnlRuntime
                     throw new NoSuchFieldException( propertyName );
                 }
                 state = context.getMemberAccess().setup( context, target, field, propertyName );
-                result = field.get( target );
+                MemberHandle handle = cache.getFieldGetterHandle( field );
+                if ( handle.isApplicable( target, NoArguments ) )
+                {
+                    try
+                    {
+                        result = handle.invoke( target, NoArguments );
+                    }
+                    catch ( InvocationTargetException ex )
+                    {
+                        throw OgnlOps.castToRuntime( ex.getTargetException() );
+                    }
+                }
+                else
+                {
+                    result = field.get( target );
+                }
                 context.getMemberAccess().restore( context, target, field, propertyName, state );
 
             }
@@ -1216,7 +1518,23 @@ public class OgnlRuntime
                     if ( isTypeCompatible( value, field.getType() ) || (
                         ( value = getConvertedType( context, target, field, propertyName, value, field.getType() ) ) != null ) )
                     {
-                        field.set( target, value );
+                        Object[] args = { value };
+                        MemberHandle handle = cache.getFieldSetterHandle( field );
+                        if ( handle.isApplicable( target, args ) )
+                        {
+                            try
+                            {
+                                handle.invoke( target, args );
+                            }
+                            catch ( InvocationTargetException ex )
+                            {
+                                throw OgnlOps.castToRuntime( ex.getTargetException() );
+                            }
+                        }
+                        else
+                        {
+                            field.set( target, value );
+                        }
                         result = true;
                     }
                 }
@@ -1490,6 +1808,7 @@ public class OgnlRuntime
     public static void setMethodAccessor( Class<?> clazz, MethodAccessor accessor )
     {
         cache.setMethodAccessor( clazz, accessor );
+        cacheGeneration.incrementAndGet();
     }
 
     public static MethodAccessor getMethodAccessor( Class<?> clazz )
@@ -1501,12 +1820,41 @@ public class OgnlRuntime
     public static void setPropertyAccessor( Class<?> clazz, PropertyAccessor accessor )
     {
         cache.setPropertyAccessor( clazz, accessor );
+        cacheGeneration.incrementAndGet();
     }
 
     public static PropertyAccessor getPropertyAccessor( Class<?> clazz )
         throws OgnlException
     {
-        return cache.getPropertyAccessor( clazz );
+        PropertyAccessor accessor = cache.getPropertyAccessor( clazz );
+        if ( generatePropertyAccessors && needsBeanPropertyAccessor( clazz, accessor ) )
+        {
+            accessor = new BeanPropertyAccessor( clazz );
+            // behaves as the default accessor, so the call site caches needn't be invalidated
+            cache.setPropertyAccessor( clazz, accessor );
+        }
+        return accessor;
+    }
+
+    private static boolean needsBeanPropertyAccessor( Class<?> clazz, PropertyAccessor accessor )
+    {
+        if ( accessor.getClass() == BeanPropertyAccessor.class )
+        {
+            // inherited from the superclass
+            return ( (BeanPropertyAccessor) accessor ).getBeanClass() != clazz;
+        }
+        return accessor.getClass() == ObjectPropertyAccessor.class && !clazz.isArray() && !clazz.isInterface()
+            && !clazz.isPrimitive();
+    }
+
+    /**
+     * Tells whether the accessor is the default {@link ObjectPropertyAccessor}, or a {@link BeanPropertyAccessor}
+     * behaving as it.
+     */
+    public static boolean isDefaultPropertyAccessor( PropertyAccessor accessor )
+    {
+        return accessor.getClass() == ObjectPropertyAccessor.class
+            || accessor.getClass() == BeanPropertyAccessor.class;
     }
 
     public static ElementsAccessor getElementsAccessor( Class<?> clazz )
@@ -1605,7 +1953,8 @@ public class OgnlRuntime
     public static Object getIndexedProperty( OgnlContext context, Object source, String name, Object index )
         throws OgnlException
     {
-        Object[] args = new Object[] { index };
+        Object[] args = context.acquireArguments( 1 );
+        args[0] = index;
 
         try
         {
@@ -1635,12 +1984,18 @@ public class OgnlRuntime
         {
             throw new OgnlException( "getting indexed property descriptor for '" + name + "'", ex );
         }
+        finally
+        {
+            context.releaseArguments( args );
+        }
     }
 
     public static void setIndexedProperty( OgnlContext context, Object source, String name, Object index, Object value )
         throws OgnlException
     {
-        Object[] args = new Object[] { index, value };
+        Object[] args = context.acquireArguments( 2 );
+        args[0] = index;
+        args[1] = value;
 
         try
         {
@@ -1670,6 +2025,10 @@ public class OgnlRuntime
         {
             throw new OgnlException( "getting indexed property descriptor for '" + name + "'", ex );
         }
+        finally
+        {
+            context.releaseArguments( args );
+        }
     }
 
     /**
@@ -1786,7 +2145,23 @@ public class OgnlRuntime
         return getReadMethod( target, name, -1 );
     }
 
+    /**
+     * Finds the method reading the named property of the target class, a getter or a method named after the property,
+     * among the methods of its {@link BeanInfo}. The outcome, even when no method is found, is cached per class, name
+     * and number of parameters.
+     *
+     * @param target the class to look up.
+     * @param name the name of the property.
+     * @param numParms the number of parameters of the method, -1 for the method with the fewest parameters.
+     * @return the method, null if none matches.
+     */
     public static Method getReadMethod( Class<?> target, String name, int numParms )
+    {
+        return cache.getAccessorMethod(
+            new AccessorMethodCacheEntry( target, name, numParms, AccessorMethodCacheEntry.AccessorType.READ ) );
+    }
+
+    static Method findReadMethod( Class<?> target, String name, int numParms )
     {
         try
         {
@@ -1869,7 +2244,7 @@ public class OgnlRuntime
 
             if ( !name.startsWith( "get" ) )
             {
-                return OgnlRuntime.getReadMethod( target, "get" + name, numParms );
+                return findReadMethod( target, "get" + name, numParms );
             }
 
         }
@@ -1886,7 +2261,22 @@ public class OgnlRuntime
         return getWriteMethod( target, name, -1 );
     }
 
+    /**
+     * Finds the method writing the named property of the target class, a setter or a method named after the property.
+     * The outcome, even when no method is found, is cached per class, name and number of parameters.
+     *
+     * @param target the class to look up.
+     * @param name the name of the property.
+     * @param numParms the number of parameters of the method, -1 for any.
+     * @return the method, null if none matches.
+     */
     public static Method getWriteMethod( Class<?> target, String name, int numParms )
+    {
+        return cache.getAccessorMethod(
+            new AccessorMethodCacheEntry( target, name, numParms, AccessorMethodCacheEntry.AccessorType.WRITE ) );
+    }
+
+    static Method findWriteMethod( Class<?> target, String name, int numParms )
     {
         try
         {
@@ -1948,7 +2338,7 @@ public class OgnlRuntime
 
             if ( !name.startsWith( "set" ) )
             {
-                return OgnlRuntime.getReadMethod( target, "set" + name, numParms );
+                return findReadMethod( target, "set" + name, numParms );
             }
 
         }
@@ -1988,6 +2378,251 @@ public class OgnlRuntime
         return null;
     }
 
+    /**
+     * Selects the elements of the source, as enumerated by its {@link ElementsAccessor}, for which the given
+     * expression evaluates to true (<code>source.{? expression}</code>).
+     *
+     * @param context The current execution context.
+     * @param source The collection, array, map... to select from.
+     * @param expression The expression evaluated on each element.
+     * @return The selected elements, in encounter order, as a {@link LazyCollection} if the context asks for it.
+     * @throws OgnlException if the expression fails on an element.
+     */
+    public static Collection<Object> select( OgnlContext context, Object source, Node expression )
+        throws OgnlException
+    {
+        if ( context.getLazyCollections() )
+        {
+            return new LazyCollection( context, source, expression, true );
+        }
+
+        Enumeration<?> e = getElementsAccessor( getTargetClass( source ) ).getElements( source );
+        if ( context.getParallelThreshold() > 0 )
+        {
+            List<Object> elements = new ArrayList<Object>( Collections.list( e ) );
+            if ( elements.size() >= context.getParallelThreshold() )
+            {
+                return ParallelCollectionEvaluator.evaluate( context, elements, expression, true );
+            }
+            e = Collections.enumeration( elements );
+        }
+
+        List<Object> answer = new ArrayList<Object>();
+        while ( e.hasMoreElements() )
+        {
+            Object next = e.nextElement();
+
+            if ( OgnlOps.booleanValue( evaluateElement( context, expression, next ) ) )
+            {
+                answer.add( next );
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Selects the first element of the source for which the given expression evaluates to true
+     * (<code>source.{^ expression}</code>).
+     *
+     * @param context The current execution context.
+     * @param source The collection, array, map... to select from.
+     * @param expression The expression evaluated on each element.
+     * @return A list holding the first selected element, empty if none.
+     * @throws OgnlException if the expression fails on an element.
+     */
+    public static List<Object> selectFirst( OgnlContext context, Object source, Node expression )
+        throws OgnlException
+    {
+        List<Object> answer = new ArrayList<Object>();
+        for ( Enumeration<?> e = getElementsAccessor( getTargetClass( source ) ).getElements( source );
+              e.hasMoreElements(); )
+        {
+            Object next = e.nextElement();
+
+            if ( OgnlOps.booleanValue( evaluateElement( context, expression, next ) ) )
+            {
+                answer.add( next );
+                break;
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Selects the last element of the source for which the given expression evaluates to true
+     * (<code>source.{$ expression}</code>).
+     *
+     * @param context The current execution context.
+     * @param source The collection, array, map... to select from.
+     * @param expression The expression evaluated on each element.
+     * @return A list holding the last selected element, empty if none.
+     * @throws OgnlException if the expression fails on an element.
+     */
+    public static List<Object> selectLast( OgnlContext context, Object source, Node expression )
+        throws OgnlException
+    {
+        List<Object> answer = new ArrayList<Object>();
+        for ( Enumeration<?> e = getElementsAccessor( getTargetClass( source ) ).getElements( source );
+              e.hasMoreElements(); )
+        {
+            Object next = e.nextElement();
+
+            if ( OgnlOps.booleanValue( evaluateElement( context, expression, next ) ) )
+            {
+                answer.clear();
+                answer.add( next );
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Evaluates the given expression on each element of the source (<code>source.{ expression }</code>).
+     *
+     * @param context The current execution context.
+     * @param source The collection, array, map... to project.
+     * @param expression The expression evaluated on each element.
+     * @return The values of the expression, in encounter order, as a {@link LazyCollection} if the context asks for
+     *         it.
+     * @throws OgnlException if the expression fails on an element.
+     */
+    public static Collection<Object> project( OgnlContext context, Object source, Node expression )
+        throws OgnlException
+    {
+        if ( context.getLazyCollections() )
+        {
+            return new LazyCollection( context, source, expression, false );
+        }
+
+        Enumeration<?> e = getElementsAccessor( getTargetClass( source ) ).getElements( source );
+        if ( context.getParallelThreshold() > 0 )
+        {
+            List<Object> elements = new ArrayList<Object>( Collections.list( e ) );
+            if ( elements.size() >= context.getParallelThreshold() )
+            {
+                return ParallelCollectionEvaluator.evaluate( context, elements, expression, false );
+            }
+            e = Collections.enumeration( elements );
+        }
+
+        List<Object> answer = new ArrayList<Object>();
+        while ( e.hasMoreElements() )
+        {
+            answer.add( evaluateElement( context, expression, e.nextElement() ) );
+        }
+        return answer;
+    }
+
+    /**
+     * Evaluates the element expression of a selection or projection on an element, through the accessor the expression
+     * was compiled to if any.
+     *
+     * @param context The current execution context.
+     * @param expression The element expression.
+     * @param element The element, root of the expression.
+     * @return The value of the expression.
+     * @throws OgnlException if the expression fails on the element.
+     */
+    static Object evaluateElement( OgnlContext context, Node expression, Object element )
+        throws OgnlException
+    {
+        ExpressionAccessor accessor = expression.getAccessor();
+        if ( accessor == null )
+        {
+            return expression.getValue( context, element );
+        }
+        try
+        {
+            return accessor.get( context, element );
+        }
+        catch ( UndeclaredThrowableException e )
+        {
+            if ( e.getCause() instanceof OgnlException )
+            {
+                throw (OgnlException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Generates the Java source of a selection or projection node, calling the given static method of this class on
+     * the source collection with the element expression of the node, itself compiled for the elements of the source
+     * when possible.
+     * Only nodes at the top level of the compiled expression, or directly in its top level chain, can be compiled.
+     *
+     * @param context The current execution context.
+     * @param target The current object target, the source collection.
+     * @param node The selection or projection node.
+     * @param method The name of the static method, <code>select</code>, <code>project</code>...
+     * @return The Java source string calling the method.
+     */
+    static String getCollectionOperationSource( OgnlContext context, Object target, SimpleNode node, String method )
+    {
+        Node expression = (Node) context.get( ExpressionCompiler.COMPILED_EXPRESSION );
+        if ( !isTopLevelChainElement( expression, node ) )
+        {
+            throw new UnsupportedCompilationException( "Can't compile nested selection/projection expressions." );
+        }
+
+        try
+        {
+            String pre = (String) context.get( "_currentChain" );
+            String source;
+            if ( pre == null || pre.isEmpty() )
+            {
+                source = "$2";
+            }
+            else if ( context.get( "_noRoot" ) != null )
+            {
+                // chained onto a previous selection/projection which already is a complete expression
+                source = pre;
+            }
+            else
+            {
+                String cast = (String) context.remove( ExpressionCompiler.PRE_CAST );
+                source = ( cast == null ? "" : cast )
+                    + ExpressionCompiler.getRootExpression( expression, context.getRoot(), context ) + pre;
+            }
+
+            Object value = node.getValue( context, target );
+            Node elementExpression = node.jjtGetChild( 0 );
+            ExpressionCompiler.compileElementExpression( context, elementExpression, target );
+
+            context.put( "_noRoot", "true" );
+            context.setCurrentObject( value );
+            context.setCurrentType( Collection.class );
+            context.setCurrentAccessor( Collection.class );
+
+            return OgnlRuntime.class.getName() + "." + method + "($1, " + source + ", "
+                + ExpressionCompiler.getNodeReference( context, elementExpression ) + ")";
+        }
+        catch ( Throwable t )
+        {
+            throw OgnlOps.castToRuntime( t );
+        }
+    }
+
+    private static boolean isTopLevelChainElement( Node expression, Node node )
+    {
+        if ( expression == node )
+        {
+            return true;
+        }
+        if ( !( expression instanceof ASTChain ) )
+        {
+            return false;
+        }
+        for ( int i = 0; i < expression.jjtGetNumChildren(); i++ )
+        {
+            if ( expression.jjtGetChild( i ) == node )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public static boolean isBoolean( String expression )
     {
         return expression != null && ( "true".equals( expression ) || "false".equals( expression )
@@ -0,0 +1,181 @@
+package org.apache.commons.ognl;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Evaluates the element expression of selections and projections on the common fork-join pool, for sources holding
+ * at least {@link OgnlContext#getParallelThreshold()} elements.
+ * <p>
+ * The elements are split in chunks, each evaluated with its own copy of the {@link OgnlContext}: variables assigned
+ * by the element expression are therefore neither shared between chunks nor visible to the caller afterwards. The
+ * results keep the encounter order of the source.
+ * </p>
+ */
+final class ParallelCollectionEvaluator
+{
+
+    /**
+     * Chunks handed to each worker of the pool, to balance uneven evaluation costs.
+     */
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    private ParallelCollectionEvaluator()
+    {
+        // static methods only
+    }
+
+    /**
+     * Evaluates the expression on the given elements.
+     *
+     * @param context The current execution context, its variables are copied for each chunk.
+     * @param elements The elements of the source, in encounter order.
+     * @param expression The element expression.
+     * @param selection true to return the elements for which the expression is true, false to return the values of
+     *            the expression.
+     * @return The selected elements or the projected values, in encounter order.
+     * @throws OgnlException if the expression fails on an element.
+     */
+    static List<Object> evaluate( OgnlContext context, List<Object> elements, Node expression, boolean selection )
+        throws OgnlException
+    {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int chunkSize = Math.max( 1, elements.size() / ( pool.getParallelism() * CHUNKS_PER_WORKER ) );
+        // the variables are snapshot on the calling thread, the workers only read the snapshot
+        OgnlContext snapshot = copy( context );
+        try
+        {
+            return pool.invoke( new ChunkTask( snapshot, elements, 0, elements.size(), chunkSize, expression,
+                                               selection ) );
+        }
+        catch ( EvaluationFailure e )
+        {
+            // the pool may rethrow a copy of the failure of another thread, wrapping the original one
+            Throwable cause = e;
+            while ( !( cause instanceof OgnlException ) )
+            {
+                cause = cause.getCause();
+            }
+            throw (OgnlException) cause;
+        }
+    }
+
+    private static OgnlContext copy( OgnlContext context )
+    {
+        OgnlContext copy =
+            new OgnlContext( context.getClassResolver(), context.getTypeConverter(), context.getMemberAccess(),
+                             context.copyValues() );
+        copy.setRoot( context.getRoot() );
+        copy.setKeepLastEvaluation( false );
+        copy.setParallelThreshold( context.getParallelThreshold() );
+        return copy;
+    }
+
+    private static final class ChunkTask
+        extends RecursiveTask<List<Object>>
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        private final OgnlContext context;
+
+        private final List<Object> elements;
+
+        private final int from;
+
+        private final int to;
+
+        private final int chunkSize;
+
+        private final Node expression;
+
+        private final boolean selection;
+
+        ChunkTask( OgnlContext context, List<Object> elements, int from, int to, int chunkSize, Node expression,
+                   boolean selection )
+        {
+            this.context = context;
+            this.elements = elements;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+            this.expression = expression;
+            this.selection = selection;
+        }
+
+        @Override
+        protected List<Object> compute()
+        {
+            if ( to - from > chunkSize )
+            {
+                int middle = ( from + to ) >>> 1;
+                ChunkTask head = new ChunkTask( context, elements, from, middle, chunkSize, expression, selection );
+                ChunkTask tail = new ChunkTask( context, elements, middle, to, chunkSize, expression, selection );
+                tail.fork();
+                List<Object> answer = head.compute();
+                answer.addAll( tail.join() );
+                return answer;
+            }
+
+            OgnlContext chunkContext = copy( context );
+            List<Object> answer = new ArrayList<Object>( to - from );
+            try
+            {
+                for ( int i = from; i < to; i++ )
+                {
+                    Object next = elements.get( i );
+                    Object value = OgnlRuntime.evaluateElement( chunkContext, expression, next );
+                    if ( !selection )
+                    {
+                        answer.add( value );
+                    }
+                    else if ( OgnlOps.booleanValue( value ) )
+                    {
+                        answer.add( next );
+                    }
+                }
+            }
+            catch ( OgnlException e )
+            {
+                throw new EvaluationFailure( e );
+            }
+            return answer;
+        }
+    }
+
+    /**
+     * Carries an {@link OgnlException} out of the pool.
+     */
+    private static final class EvaluationFailure
+        extends RuntimeException
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        EvaluationFailure( OgnlException cause )
+        {
+            super( cause );
+        }
+    }
+}
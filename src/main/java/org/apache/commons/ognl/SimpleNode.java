@@ -23,6 +23,7 @@ import org.apache.commons.ognl.enhance.ExpressionAccessor;
 
 import java.io.PrintWriter;
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 public abstract class SimpleNode
     implements Node, Serializable
@@ -30,6 +31,11 @@ public abstract class SimpleNode
 
     private static final long serialVersionUID = 8305393337889433901L;
 
+    private static final AtomicIntegerFieldUpdater<SimpleNode> INTERPRETED_EVALUATIONS =
+        AtomicIntegerFieldUpdater.newUpdater( SimpleNode.class, "interpretedEvaluations" );
+
+    private static final ConstantValue NOT_CONSTANT = new ConstantValue( null );
+
     protected Node parent;
 
     protected Node[] children;
@@ -38,13 +44,16 @@ public abstract class SimpleNode
 
     protected OgnlParser parser;
 
-    private boolean constantValueCalculated;
+    /**
+     * Memo of the value of a constant node, {@link #NOT_CONSTANT} for other nodes, null until first evaluated.
+     */
+    private transient volatile ConstantValue constantValue;
 
-    private volatile boolean hasConstantValue;
+    private volatile ExpressionAccessor accessor;
 
-    private Object constantValue;
+    private transient volatile int interpretedEvaluations;
 
-    private ExpressionAccessor accessor;
+    private String source;
 
     public SimpleNode( int i )
     {
@@ -202,20 +211,15 @@ public abstract class SimpleNode
         context.setCurrentObject( source );
         context.setCurrentNode( this );
 
-        if ( !constantValueCalculated )
+        ConstantValue constant = constantValue;
+        if ( constant == null )
         {
-            constantValueCalculated = true;
-            boolean constant = isConstant( context );
-
-            if ( constant )
-            {
-                constantValue = getValueBody( context, source );
-            }
-
-            hasConstantValue = constant;
+            // published whole once computed: threads sharing the node may only compute it more than once
+            constant = isConstant( context ) ? new ConstantValue( getValueBody( context, source ) ) : NOT_CONSTANT;
+            constantValue = constant;
         }
 
-        return hasConstantValue ? constantValue : getValueBody( context, source );
+        return constant != NOT_CONSTANT ? constant.value : getValueBody( context, source );
     }
 
     protected void evaluateSetValueBody( OgnlContext context, Object target, Object value )
@@ -438,4 +442,41 @@ public abstract class SimpleNode
     {
         this.accessor = accessor;
     }
+
+    /**
+     * Returns the expression this tree was parsed from, only set on top level nodes returned by
+     * {@link Ognl#parseExpression(String)}.
+     *
+     * @return the parsed expression, or null.
+     */
+    public String getSource()
+    {
+        return source;
+    }
+
+    void setSource( String source )
+    {
+        this.source = source;
+    }
+
+    /**
+     * Counts an interpreted evaluation of this node as a top level expression, stopping at the given limit.
+     *
+     * @param limit the number of evaluations to count.
+     * @return true for the one call reaching the limit, false otherwise.
+     */
+    public boolean countInterpretedEvaluation( int limit )
+    {
+        return interpretedEvaluations < limit && INTERPRETED_EVALUATIONS.incrementAndGet( this ) == limit;
+    }
+
+    private static final class ConstantValue
+    {
+        final Object value;
+
+        ConstantValue( Object value )
+        {
+            this.value = value;
+        }
+    }
 }
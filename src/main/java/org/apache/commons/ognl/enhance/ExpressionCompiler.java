@@ -45,22 +45,30 @@ import org.apache.commons.ognl.ClassResolver;
 import org.apache.commons.ognl.ExpressionNode;
 import org.apache.commons.ognl.Node;
 import org.apache.commons.ognl.OgnlContext;
+import org.apache.commons.ognl.OgnlException;
 import org.apache.commons.ognl.OgnlRuntime;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Collection;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.lang.String.format;
 
 /**
  * Responsible for managing/providing functionality related to compiling generated Java source expressions via bytecode
  * enhancements for a given ognl expression.
+ * <p>
+ * Expressions may be compiled from several threads at once: every {@link ClassResolver} gets its own
+ * {@link ClassPool} and {@link EnhancedClassLoader}, and each compilation builds its class in a short lived child pool.
+ * </p>
  */
 public class ExpressionCompiler
     implements OgnlExpressionCompiler
@@ -72,16 +80,42 @@ public class ExpressionCompiler
     public static final String PRE_CAST = "_preCast";
 
     /**
-     * {@link ClassLoader} instances.
+     * Name of the field of compiled accessors holding the root node of the compiled expression.
      */
-    protected Map<ClassResolver, EnhancedClassLoader> loaders = new HashMap<ClassResolver, EnhancedClassLoader>();
+    public static final String NODE_FIELD = "_node";
 
     /**
-     * Javassist class definition poool.
+     * Key used to store the root node being compiled in the {@link OgnlContext} during class compilation.
      */
+    public static final String COMPILED_EXPRESSION = "_compiledExpression";
+
+    /**
+     * Key set in the {@link OgnlContext} while compiling the element expression of a selection or projection, whose
+     * <code>#this</code> references evaluate to the root.
+     */
+    public static final String ELEMENT_EXPRESSION = "_elementExpression";
+
+    /**
+     * {@link ClassLoader} instances, one per {@link ClassResolver}.
+     */
+    protected Map<ClassResolver, EnhancedClassLoader> loaders =
+        new ConcurrentHashMap<ClassResolver, EnhancedClassLoader>();
+
+    /**
+     * Javassist class definition pools, one per {@link ClassResolver}.
+     */
+    protected final Map<ClassResolver, ClassPool> pools = new ConcurrentHashMap<ClassResolver, ClassPool>();
+
+    /**
+     * Javassist class definition pool of the last {@link ClassResolver} a pool was requested for.
+     *
+     * @deprecated pools are kept per {@link ClassResolver} in {@link #pools}, use
+     *             {@link #getClassPool(OgnlContext, EnhancedClassLoader)}.
+     */
+    @Deprecated
     protected ClassPool pool;
 
-    protected int classCounter;
+    protected final AtomicLong classCounter = new AtomicLong();
 
     /**
      * Used by {@link #castExpression(org.apache.commons.ognl.OgnlContext, org.apache.commons.ognl.Node, String)} to
@@ -180,6 +214,43 @@ public class ExpressionCompiler
         return rootExpr;
     }
 
+    /**
+     * Returns the Java source referencing the given node from the {@link #NODE_FIELD} of the compiled accessor, for
+     * generated code delegating part of the work to the node itself.
+     *
+     * @param context The current execution context, holding the {@link #COMPILED_EXPRESSION}.
+     * @param node A node of the compiled expression.
+     * @return A Java source string evaluating to the node.
+     */
+    public static String getNodeReference( OgnlContext context, Node node )
+    {
+        Node expression = (Node) context.get( COMPILED_EXPRESSION );
+        String path = expression == null ? null : getNodePath( expression, node );
+        if ( path == null )
+        {
+            throw new UnsupportedCompilationException( "Node " + node + " is not part of the compiled expression." );
+        }
+        return NODE_FIELD + path;
+    }
+
+    private static String getNodePath( Node parent, Node node )
+    {
+        if ( parent == node )
+        {
+            return "";
+        }
+        // parent references aren't reliable once the parser flattened the tree, search from the top
+        for ( int i = 0; i < parent.jjtGetNumChildren(); i++ )
+        {
+            String path = getNodePath( parent.jjtGetChild( i ), node );
+            if ( path != null )
+            {
+                return ".jjtGetChild(" + i + ")" + path;
+            }
+        }
+        return null;
+    }
+
     /**
      * Used by {@link #getRootExpression(org.apache.commons.ognl.Node, Object, org.apache.commons.ognl.OgnlContext)} to
      * determine if the expression needs to be cast at all.
@@ -486,26 +557,112 @@ public class ExpressionCompiler
             return;
         }
 
+        expression.setAccessor( createAccessor( context, expression, root, true ) );
+    }
+
+    /**
+     * Compiles the element expression of a selection or projection of the expression being compiled, so that the
+     * accessor compiled for the whole expression doesn't interpret it for each element. The element expression is
+     * compiled for the class of the first element of the source, elements of other classes are evaluated by the node
+     * itself, as are all the elements when the source is empty or the element expression can't be compiled.
+     *
+     * @param context The current execution context, holding the variables the element expression may reference.
+     * @param expression The element expression.
+     * @param source The source collection, array, map... whose elements the expression is evaluated on.
+     */
+    public static void compileElementExpression( OgnlContext context, Node expression, Object source )
+    {
+        if ( expression.getAccessor() != null )
+        {
+            return;
+        }
+
+        Object element = null;
+        try
+        {
+            Enumeration<?> elements = OgnlRuntime.getElementsAccessor( OgnlRuntime.getTargetClass( source ) )
+                .getElements( source );
+            if ( elements.hasMoreElements() )
+            {
+                element = elements.nextElement();
+            }
+        }
+        catch ( OgnlException e )
+        {
+            // left to the node, which reports it
+        }
+        if ( element == null )
+        {
+            return;
+        }
+
+        // the compilation state of the enclosing expression is kept in the context, compile with one of its own
+        OgnlContext elementContext =
+            new OgnlContext( context.getClassResolver(), context.getTypeConverter(), context.getMemberAccess(),
+                             new HashMap<String, Object>( context.getValues() ) );
+        elementContext.put( ELEMENT_EXPRESSION, Boolean.TRUE );
+        OgnlExpressionCompiler compiler = OgnlRuntime.getCompiler( context );
+        ExpressionCompiler elementCompiler =
+            compiler instanceof ExpressionCompiler ? (ExpressionCompiler) compiler : new ExpressionCompiler();
+
+        synchronized ( expression )
+        {
+            if ( expression.getAccessor() != null )
+            {
+                return;
+            }
+            ExpressionAccessor compiled;
+            try
+            {
+                compiled = elementCompiler.createAccessor( elementContext, expression, element, false );
+            }
+            catch ( Exception e )
+            {
+                // left to the node
+                return;
+            }
+            expression.setAccessor( new TieredCompiler.RootClassAccessor( element.getClass(), compiled, expression ) );
+        }
+    }
+
+    /**
+     * Compiles an expression into a new accessor.
+     *
+     * @param context The current execution context.
+     * @param expression The expression to compile.
+     * @param root The root object the expression is compiled for.
+     * @param fallback Whether the accessor may evaluate the node itself when the expression can't be compiled,
+     *            otherwise {@link UnsupportedCompilationException} is thrown and only the getter is compiled.
+     * @return The compiled accessor, not set on the expression yet.
+     * @throws Exception If a javassist error occurs.
+     */
+    private ExpressionAccessor createAccessor( OgnlContext context, Node expression, Object root, boolean fallback )
+        throws Exception
+    {
         String getBody, setBody;
 
+        context.put( COMPILED_EXPRESSION, expression );
+
         EnhancedClassLoader loader = getClassLoader( context );
-        ClassPool classPool = getClassPool( context, loader );
 
-        CtClass newClass = classPool.makeClass(
-            expression.getClass().getName() + expression.hashCode() + classCounter++ + "Accessor" );
-        newClass.addInterface( getCtClass( ExpressionAccessor.class ) );
+        // the generated class only lives in a child pool so that concurrent compilations don't share mutable state
+        ClassPool classPool = new ClassPool( getClassPool( context, loader ) );
 
-        CtClass ognlClass = getCtClass( OgnlContext.class );
-        CtClass objClass = getCtClass( Object.class );
+        CtClass newClass = classPool.makeClass( expression.getClass().getName() + expression.hashCode()
+            + classCounter.getAndIncrement() + "Accessor" );
+        newClass.addInterface( getCtClass( classPool, ExpressionAccessor.class ) );
+
+        CtClass ognlClass = getCtClass( classPool, OgnlContext.class );
+        CtClass objClass = getCtClass( classPool, Object.class );
 
         CtMethod valueGetter = new CtMethod( objClass, "get", new CtClass[] { ognlClass, objClass }, newClass );
         CtMethod valueSetter =
             new CtMethod( CtClass.voidType, "set", new CtClass[] { ognlClass, objClass, objClass }, newClass );
 
-        CtField nodeMember = null; // will only be set if uncompilable exception is thrown
-
-        CtClass nodeClass = getCtClass( Node.class );
-        CtMethod setExpression = null;
+        // referenced by the fail safe methods and by generated code delegating to nodes of the expression
+        CtField nodeMember = new CtField( getCtClass( classPool, Node.class ), NODE_FIELD, newClass );
+        newClass.addField( nodeMember );
+        newClass.addMethod( CtNewMethod.setter( "setExpression", nodeMember ) );
 
         try
         {
@@ -515,54 +672,42 @@ public class ExpressionCompiler
         }
         catch ( UnsupportedCompilationException uc )
         {
-            nodeMember = new CtField( nodeClass, "_node", newClass );
-            newClass.addField( nodeMember );
-
+            if ( !fallback )
+            {
+                context.remove( COMPILED_EXPRESSION );
+                throw uc;
+            }
             getBody = generateOgnlGetter( newClass, valueGetter, nodeMember );
-
-            setExpression = CtNewMethod.setter( "setExpression", nodeMember );
-            newClass.addMethod( setExpression );
         }
 
         try
         {
 
-            setBody = generateSetter( context, newClass, objClass, classPool, valueSetter, expression, root );
+            setBody = fallback
+                ? generateSetter( context, newClass, objClass, classPool, valueSetter, expression, root )
+                : generateOgnlSetter( newClass, valueSetter, nodeMember );
 
         }
         catch ( UnsupportedCompilationException uc )
         {
-            if ( nodeMember == null )
-            {
-                nodeMember = new CtField( nodeClass, "_node", newClass );
-                newClass.addField( nodeMember );
-            }
-
             setBody = generateOgnlSetter( newClass, valueSetter, nodeMember );
-
-            if ( setExpression == null )
-            {
-                setExpression = CtNewMethod.setter( "setExpression", nodeMember );
-                newClass.addMethod( setExpression );
-            }
+        }
+        finally
+        {
+            context.remove( COMPILED_EXPRESSION );
         }
 
         try
         {
             newClass.addConstructor( CtNewConstructor.defaultConstructor( newClass ) );
 
-            Class<?> clazz = classPool.toClass( newClass );
+            Class<?> clazz = loader.defineClass( newClass.getName(), newClass.toBytecode() );
             newClass.detach();
 
-            expression.setAccessor( (ExpressionAccessor) clazz.newInstance() );
-
-            // need to set expression on node if the field was just defined.
-
-            if ( nodeMember != null )
-            {
-                expression.getAccessor().setExpression( expression );
-            }
+            ExpressionAccessor accessor = (ExpressionAccessor) clazz.newInstance();
+            accessor.setExpression( expression );
 
+            return accessor;
         }
         catch ( Throwable t )
         {
@@ -790,56 +935,67 @@ public class ExpressionCompiler
      * @param context The current execution context.
      * @return The created {@link ClassLoader} instance.
      */
-    protected EnhancedClassLoader getClassLoader( OgnlContext context )
+    protected EnhancedClassLoader getClassLoader( final OgnlContext context )
     {
-        EnhancedClassLoader ret = loaders.get( context.getClassResolver() );
-
-        if ( ret != null )
-        {
-            return ret;
-        }
-
-        ClassLoader classLoader = new ContextClassLoader( OgnlContext.class.getClassLoader(), context );
-
-        ret = new EnhancedClassLoader( classLoader );
-        loaders.put( context.getClassResolver(), ret );
+        return loaders.computeIfAbsent( context.getClassResolver(), resolver -> {
+            ClassLoader classLoader = new ContextClassLoader( OgnlContext.class.getClassLoader(), context );
 
-        return ret;
+            return new EnhancedClassLoader( classLoader );
+        } );
     }
 
     /**
      * Loads a new class definition via javassist for the specified class.
      *
+     * @param classPool The pool to load the class definition from.
      * @param searchClass The class to load.
      * @return The javassist class equivalent.
      * @throws javassist.NotFoundException When the class definition can't be found.
      */
+    protected CtClass getCtClass( ClassPool classPool, Class<?> searchClass )
+        throws NotFoundException
+    {
+        return classPool.get( searchClass.getName() );
+    }
+
+    /**
+     * Loads a new class definition via javassist for the specified class, from the pool of the last
+     * {@link ClassResolver} a pool was requested for.
+     *
+     * @param searchClass The class to load.
+     * @return The javassist class equivalent.
+     * @throws javassist.NotFoundException When the class definition can't be found.
+     * @deprecated the compiler no longer calls this method, use {@link #getCtClass(ClassPool, Class)} with the pool
+     *             of the compilation.
+     */
+    @Deprecated
     protected CtClass getCtClass( Class<?> searchClass )
         throws NotFoundException
     {
-        return pool.get( searchClass.getName() );
+        ClassPool classPool = pool;
+        return getCtClass( classPool != null ? classPool : ClassPool.getDefault(), searchClass );
     }
 
     /**
-     * Gets either a new or existing {@link ClassPool} for use in compiling javassist classes. A new class path object
-     * is inserted in to the returned {@link ClassPool} using the passed in <code>loader</code> instance if a new pool
-     * needs to be created.
+     * Gets either a new or existing {@link ClassPool} for use in compiling javassist classes, one per
+     * {@link ClassResolver}. A new class path object is inserted in to the returned {@link ClassPool} using the passed
+     * in <code>loader</code> instance if a new pool needs to be created.
      *
      * @param context The current execution context.
      * @param loader The {@link ClassLoader} instance to use - as returned by
      *            {@link #getClassLoader(org.apache.commons.ognl.OgnlContext)}.
      * @return The existing or new {@link ClassPool} instance.
      */
-    protected ClassPool getClassPool( OgnlContext context, EnhancedClassLoader loader )
+    protected ClassPool getClassPool( OgnlContext context, final EnhancedClassLoader loader )
     {
-        if ( pool != null )
-        {
-            return pool;
-        }
+        ClassPool result = pools.computeIfAbsent( context.getClassResolver(), resolver -> {
+            ClassPool classPool = new ClassPool( true );
+            classPool.insertClassPath( new LoaderClassPath( loader.getParent() ) );
 
-        pool = ClassPool.getDefault();
-        pool.insertClassPath( new LoaderClassPath( loader.getParent() ) );
+            return classPool;
+        } );
+        pool = result;
 
-        return pool;
+        return result;
     }
 }
@@ -0,0 +1,490 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.commons.ognl.enhance;
+
+import org.apache.commons.ognl.ASTChain;
+import org.apache.commons.ognl.ASTConst;
+import org.apache.commons.ognl.ASTProperty;
+import org.apache.commons.ognl.MethodFailedException;
+import org.apache.commons.ognl.Node;
+import org.apache.commons.ognl.ObjectPropertyAccessor;
+import org.apache.commons.ognl.OgnlContext;
+import org.apache.commons.ognl.OgnlException;
+import org.apache.commons.ognl.OgnlRuntime;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Expression compiler composing {@link MethodHandle} trees out of the parsed expression instead of generating and
+ * compiling Java source: it needs no javassist on the class path and defines no classes, so compiled accessors are
+ * reclaimed with their expression. Select it with {@link OgnlRuntime#setCompiler(OgnlExpressionCompiler)}.
+ * <p>
+ * Constants and chains of plain bean properties (<code>foo.bar.baz</code>) read and written through public methods of
+ * classes handled by the {@link ObjectPropertyAccessor} are compiled; each step is guarded by the exact class seen at
+ * compile time. Every other expression is delegated to the interpreted {@link Node}. An evaluation failing a guard
+ * (a <code>null</code> in the chain, an object of another class, a value needing conversion) goes on interpreting the
+ * remaining properties from the value that failed it, so no getter runs twice.
+ * </p>
+ * <p>
+ * Invoked getters and setters fail as they do when interpreted, with an {@link OgnlException} and a
+ * {@link MethodFailedException}. Checked exceptions are wrapped in an {@link UndeclaredThrowableException}, as
+ * {@link ExpressionAccessor} methods can't declare them.
+ * </p>
+ */
+public class MethodHandleExpressionCompiler
+    implements OgnlExpressionCompiler
+{
+
+    private static final MethodHandle IS_CLASS;
+
+    private static final MethodHandle ACCEPTS;
+
+    private static final MethodHandle MISSED;
+
+    private static final MethodHandle GET_FAILED;
+
+    private static final MethodHandle SET_FAILED;
+
+    /**
+     * Returned by compiled setters when the value has been written.
+     */
+    private static final MethodHandle SET = MethodHandles.constant( Object.class, null );
+
+    static
+    {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try
+        {
+            IS_CLASS = lookup.findStatic( MethodHandleExpressionCompiler.class, "isClass",
+                                          MethodType.methodType( boolean.class, Class.class, Object.class ) );
+            ACCEPTS = lookup.findStatic( MethodHandleExpressionCompiler.class, "accepts",
+                                         MethodType.methodType( boolean.class, Class.class, boolean.class,
+                                                                Object.class ) );
+            MISSED = lookup.findStatic( MethodHandleExpressionCompiler.class, "missed",
+                                        MethodType.methodType( Object.class, int.class, Object.class ) );
+            GET_FAILED = lookup.findStatic( MethodHandleExpressionCompiler.class, "getFailed",
+                                            MethodType.methodType( Object.class, String.class, Throwable.class,
+                                                                   Object.class ) );
+            SET_FAILED = lookup.findStatic( MethodHandleExpressionCompiler.class, "setFailed",
+                                            MethodType.methodType( void.class, String.class, Throwable.class,
+                                                                   Object.class, Object.class ) );
+        }
+        catch ( NoSuchMethodException | IllegalAccessException e )
+        {
+            throw new ExceptionInInitializerError( e );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void compileExpression( OgnlContext context, Node expression, Object root )
+        throws Exception
+    {
+        if ( expression.getAccessor() != null )
+        {
+            return;
+        }
+
+        ExpressionAccessor accessor = createAccessor( context, expression, root == null ? null : root.getClass() );
+        expression.setAccessor( accessor != null ? accessor : new MethodHandleAccessor( expression, null, null ) );
+    }
+
+    /**
+     * Creates an accessor of the given expression for roots of the given class. Only the declared types of the
+     * properties are inspected, nothing is evaluated.
+     *
+     * @param context the context, providing the {@link org.apache.commons.ognl.MemberAccess} to check.
+     * @param expression the expression.
+     * @param rootClass the class of the roots, may be null.
+     * @return the accessor, null if no part of the expression could be compiled.
+     * @throws Exception if a property couldn't be looked up.
+     */
+    static ExpressionAccessor createAccessor( OgnlContext context, Node expression, Class<?> rootClass )
+        throws Exception
+    {
+        MethodHandle getter = null;
+        MethodHandle setter = null;
+
+        if ( expression instanceof ASTConst )
+        {
+            getter = MethodHandles.dropArguments(
+                MethodHandles.constant( Object.class, ( (ASTConst) expression ).getValue() ), 0, Object.class );
+        }
+        else
+        {
+            List<String> properties = getPropertyNames( expression );
+            if ( properties != null && rootClass != null )
+            {
+                try
+                {
+                    getter = createGetter( context, rootClass, properties );
+                    setter = createSetter( context, rootClass, properties );
+                }
+                catch ( UnsupportedCompilationException e )
+                {
+                    // interpreted
+                }
+            }
+        }
+
+        return getter == null && setter == null ? null : new MethodHandleAccessor( expression, getter, setter );
+    }
+
+    /**
+     * Returns the property names navigated by the given expression, or <code>null</code> if it isn't a chain of plain
+     * named properties.
+     */
+    private static List<String> getPropertyNames( Node expression )
+    {
+        List<String> names = new ArrayList<String>();
+        if ( expression instanceof ASTChain )
+        {
+            for ( int i = 0; i < expression.jjtGetNumChildren(); i++ )
+            {
+                String name = getPropertyName( expression.jjtGetChild( i ) );
+                if ( name == null )
+                {
+                    return null;
+                }
+                names.add( name );
+            }
+            return names;
+        }
+
+        String name = getPropertyName( expression );
+        if ( name == null )
+        {
+            return null;
+        }
+        names.add( name );
+        return names;
+    }
+
+    private static String getPropertyName( Node node )
+    {
+        if ( !( node instanceof ASTProperty ) || ( (ASTProperty) node ).isIndexedAccess()
+            || node.jjtGetNumChildren() != 1 || !( node.jjtGetChild( 0 ) instanceof ASTConst ) )
+        {
+            return null;
+        }
+        Object name = ( (ASTConst) node.jjtGetChild( 0 ) ).getValue();
+        return name instanceof String ? (String) name : null;
+    }
+
+    /**
+     * Creates a <code>(Object)Object</code> handle reading the given properties from an instance of
+     * <code>type</code>, returning a {@link Miss} when a guard fails.
+     */
+    private static MethodHandle createGetter( OgnlContext context, Class<?> type, List<String> properties )
+        throws Exception
+    {
+        MethodHandle chain = null;
+        for ( int i = 0; i < properties.size(); i++ )
+        {
+            String property = properties.get( i );
+            checkBeanType( type );
+            Method method = OgnlRuntime.getGetMethod( context, type, property );
+            MethodHandle read = unreflect( context, method, property ).asType(
+                MethodType.methodType( Object.class, Object.class ) );
+            MethodHandle step = MethodHandles.catchException( read, Throwable.class, GET_FAILED.bindTo( property ) );
+            MethodHandle guarded = MethodHandles.guardWithTest( IS_CLASS.bindTo( type ), step,
+                                                                MethodHandles.insertArguments( MISSED, 0, i ) );
+
+            chain = chain == null ? guarded : MethodHandles.filterReturnValue( chain, guarded );
+            type = method.getReturnType();
+        }
+        return chain;
+    }
+
+    /**
+     * Creates a <code>(Object,Object)Object</code> handle writing the last of the given properties, returning null
+     * once written or a {@link Miss} when a guard fails.
+     */
+    private static MethodHandle createSetter( OgnlContext context, Class<?> rootType, List<String> properties )
+        throws Exception
+    {
+        MethodHandle prefix = null;
+        Class<?> type = rootType;
+        if ( properties.size() > 1 )
+        {
+            List<String> path = properties.subList( 0, properties.size() - 1 );
+            prefix = createGetter( context, rootType, path );
+            for ( String property : path )
+            {
+                type = OgnlRuntime.getGetMethod( context, type, property ).getReturnType();
+            }
+        }
+
+        String property = properties.get( properties.size() - 1 );
+        checkBeanType( type );
+        Method method = OgnlRuntime.getSetMethod( context, type, property );
+        MethodHandle write = MethodHandles.catchException( unreflect( context, method, property ).asType(
+            MethodType.methodType( void.class, Object.class, Object.class ) ), Throwable.class,
+            SET_FAILED.bindTo( method.getName() ) );
+
+        Class<?> valueType = method.getParameterTypes()[0];
+        MethodHandle acceptsValue = MethodHandles.dropArguments(
+            MethodHandles.insertArguments( ACCEPTS, 0, valueType.isPrimitive()
+                ? OgnlRuntime.getPrimitiveWrapperClass( valueType )
+                : valueType, !valueType.isPrimitive() ), 0, Object.class );
+
+        MethodHandle notSet = MethodHandles.dropArguments(
+            MethodHandles.insertArguments( MISSED, 0, properties.size() - 1 ), 1, Object.class );
+        MethodHandle step = MethodHandles.guardWithTest( IS_CLASS.bindTo( type ), MethodHandles.guardWithTest(
+            acceptsValue, MethodHandles.filterReturnValue( write, SET ), notSet ), notSet );
+
+        return prefix == null ? step : MethodHandles.filterArguments( step, 0, prefix );
+    }
+
+    private static void checkBeanType( Class<?> type )
+        throws Exception
+    {
+        if ( type.isPrimitive() || type.isArray() || type.isInterface() || type == Class.class
+            || Modifier.isAbstract( type.getModifiers() )
+            || !OgnlRuntime.isDefaultPropertyAccessor( OgnlRuntime.getPropertyAccessor( type ) ) )
+        {
+            throw new UnsupportedCompilationException( "Can't bind properties of " + type );
+        }
+    }
+
+    private static MethodHandle unreflect( OgnlContext context, Method method, String property )
+        throws Exception
+    {
+        if ( method == null || Modifier.isStatic( method.getModifiers() )
+            || !context.getMemberAccess().isAccessible( context, null, method, property ) )
+        {
+            throw new UnsupportedCompilationException( "No accessible method for property " + property );
+        }
+        try
+        {
+            return MethodHandles.publicLookup().unreflect( method );
+        }
+        catch ( IllegalAccessException e )
+        {
+            throw new UnsupportedCompilationException( "No public method for property " + property, e );
+        }
+    }
+
+    private static Object getFailed( String property, Throwable cause, Object target )
+        throws OgnlException
+    {
+        // as reported by OgnlRuntime.getMethodValue
+        throw new OgnlException( property, cause );
+    }
+
+    private static void setFailed( String methodName, Throwable cause, Object target, Object value )
+        throws MethodFailedException
+    {
+        // as reported by OgnlRuntime.callAppropriateMethod
+        throw new MethodFailedException( target, methodName, cause );
+    }
+
+    private static boolean isClass( Class<?> type, Object value )
+    {
+        return value != null && value.getClass() == type;
+    }
+
+    private static boolean accepts( Class<?> type, boolean nullable, Object value )
+    {
+        return value == null ? nullable : type.isInstance( value );
+    }
+
+    private static Object missed( int step, Object value )
+    {
+        // a guard of an earlier step already failed
+        return value instanceof Miss ? value : new Miss( step, value );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getClassName( Class<?> clazz )
+    {
+        return clazz.getName();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Class<?> getInterfaceClass( Class<?> clazz )
+    {
+        return clazz;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Class<?> getSuperOrInterfaceClass( Method m, Class<?> clazz )
+    {
+        return m.getDeclaringClass();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Class<?> getRootExpressionClass( Node rootNode, OgnlContext context )
+    {
+        return context.getRoot() == null ? null : context.getRoot().getClass();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String castExpression( OgnlContext context, Node expression, String body )
+    {
+        return body;
+    }
+
+    /**
+     * Not supported, this compiler doesn't generate Java source.
+     */
+    public String createLocalReference( OgnlContext context, String expression, Class<?> type )
+    {
+        throw new UnsupportedCompilationException( "Java source is not generated by " + getClass().getName() );
+    }
+
+    /**
+     * Property step a guard failed at, with the value it was given.
+     */
+    private static final class Miss
+    {
+
+        final int step;
+
+        final Object value;
+
+        Miss( int step, Object value )
+        {
+            this.step = step;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Accessor invoking the composed handles, interpreting the steps the guards rejected.
+     */
+    static final class MethodHandleAccessor
+        implements ExpressionAccessor
+    {
+
+        private Node expression;
+
+        private final MethodHandle getter;
+
+        private final MethodHandle setter;
+
+        MethodHandleAccessor( Node expression, MethodHandle getter, MethodHandle setter )
+        {
+            this.expression = expression;
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        public Object get( OgnlContext context, Object target )
+        {
+            try
+            {
+                if ( getter == null )
+                {
+                    return expression.getValue( context, target );
+                }
+                Object result = (Object) getter.invokeExact( target );
+                if ( !( result instanceof Miss ) )
+                {
+                    return result;
+                }
+                Miss miss = (Miss) result;
+                return getFrom( context, miss.value, miss.step, getStepCount() );
+            }
+            catch ( RuntimeException | Error e )
+            {
+                throw e;
+            }
+            catch ( Throwable t )
+            {
+                throw new UndeclaredThrowableException( t );
+            }
+        }
+
+        public void set( OgnlContext context, Object target, Object value )
+        {
+            try
+            {
+                if ( setter == null )
+                {
+                    expression.setValue( context, target, value );
+                    return;
+                }
+                Object result = (Object) setter.invokeExact( target, value );
+                if ( result instanceof Miss )
+                {
+                    Miss miss = (Miss) result;
+                    int last = getStepCount() - 1;
+                    getStep( last ).setValue( context, getFrom( context, miss.value, miss.step, last ), value );
+                }
+            }
+            catch ( RuntimeException | Error e )
+            {
+                throw e;
+            }
+            catch ( Throwable t )
+            {
+                throw new UndeclaredThrowableException( t );
+            }
+        }
+
+        /**
+         * Interprets the steps from <code>first</code> (inclusive) to <code>end</code> (exclusive) on the given value.
+         */
+        private Object getFrom( OgnlContext context, Object value, int first, int end )
+            throws OgnlException
+        {
+            Object result = value;
+            for ( int i = first; i < end; i++ )
+            {
+                result = getStep( i ).getValue( context, result );
+            }
+            return result;
+        }
+
+        private int getStepCount()
+        {
+            return expression instanceof ASTChain ? expression.jjtGetNumChildren() : 1;
+        }
+
+        private Node getStep( int index )
+        {
+            return expression instanceof ASTChain ? expression.jjtGetChild( index ) : expression;
+        }
+
+        public void setExpression( Node expression )
+        {
+            this.expression = expression;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.commons.ognl.enhance;
+
+import org.apache.commons.ognl.Node;
+import org.apache.commons.ognl.Ognl;
+import org.apache.commons.ognl.OgnlContext;
+import org.apache.commons.ognl.OgnlRuntime;
+import org.apache.commons.ognl.SimpleNode;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Compiles hot expressions in the background: once a parsed expression has been interpreted <code>threshold</code>
+ * times by {@link Ognl#getValue(Object, java.util.Map, Object)} or
+ * {@link Ognl#setValue(Object, java.util.Map, Object, Object)}, it is compiled on the executor by the
+ * {@link MethodHandleExpressionCompiler} and the resulting accessor is installed on the expression.
+ * <p>
+ * Only the class of the root is handed over to the executor: the compiler inspects declared types and never evaluates
+ * anything, unlike the javassist based {@link ExpressionCompiler}. The installed accessor is only used for roots of
+ * the class the expression was compiled against, and each property read is guarded by the class it was compiled for,
+ * so other roots and values of other classes keep being interpreted. Expressions the compiler doesn't handle silently
+ * stay interpreted.
+ * </p>
+ * <p>
+ * Disabled by default, enable it with {@link OgnlRuntime#setTieredCompiler(TieredCompiler)} or the
+ * {@link #THRESHOLD_PROPERTY} system property.
+ * </p>
+ */
+public class TieredCompiler
+{
+
+    /**
+     * System property holding the threshold of the default tiered compiler, tiered compilation is disabled when not
+     * set.
+     */
+    public static final String THRESHOLD_PROPERTY = "ognl.tieredCompilation.threshold";
+
+    private final int threshold;
+
+    private final Executor executor;
+
+    /**
+     * Creates a tiered compiler compiling on a single daemon thread.
+     *
+     * @param threshold the number of interpreted evaluations before an expression is compiled.
+     */
+    public TieredCompiler( int threshold )
+    {
+        this( threshold, createDefaultExecutor() );
+    }
+
+    /**
+     * @param threshold the number of interpreted evaluations before an expression is compiled.
+     * @param executor the executor running the compilations.
+     */
+    public TieredCompiler( int threshold, Executor executor )
+    {
+        if ( threshold < 1 )
+        {
+            throw new IllegalArgumentException( "threshold must be positive: " + threshold );
+        }
+        if ( executor == null )
+        {
+            throw new IllegalArgumentException( "executor cannot be null" );
+        }
+        this.threshold = threshold;
+        this.executor = executor;
+    }
+
+    /**
+     * Creates the tiered compiler configured by the {@link #THRESHOLD_PROPERTY} system property.
+     *
+     * @return the configured tiered compiler, or null if disabled.
+     */
+    public static TieredCompiler createDefault()
+    {
+        try
+        {
+            Integer threshold = Integer.getInteger( THRESHOLD_PROPERTY );
+            if ( threshold != null && threshold > 0 )
+            {
+                return new TieredCompiler( threshold );
+            }
+        }
+        catch ( SecurityException ex )
+        {
+            // restricted access environment, just keep defaults
+        }
+        return null;
+    }
+
+    private static ExecutorService createDefaultExecutor()
+    {
+        return Executors.newSingleThreadExecutor( runnable -> {
+            Thread thread = new Thread( runnable, "ognl-tiered-compiler" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+    }
+
+    public int getThreshold()
+    {
+        return threshold;
+    }
+
+    /**
+     * Records an interpreted evaluation of the given top level expression, scheduling its compilation when it reaches
+     * the threshold.
+     *
+     * @param context The context of the evaluation.
+     * @param expression The evaluated expression.
+     * @param root The root object of the evaluation.
+     */
+    public void interpreted( OgnlContext context, Node expression, Object root )
+    {
+        if ( !( expression instanceof SimpleNode ) || root == null
+            || !( (SimpleNode) expression ).countInterpretedEvaluation( threshold ) )
+        {
+            return;
+        }
+
+        // the caller keeps using its context and root, the compiler only needs the access policy and the root class
+        final OgnlContext compileContext =
+            new OgnlContext( context.getClassResolver(), context.getTypeConverter(), context.getMemberAccess() );
+        final Class<?> rootClass = root.getClass();
+
+        executor.execute( () -> compile( compileContext, expression, rootClass ) );
+    }
+
+    private static void compile( OgnlContext context, Node expression, Class<?> rootClass )
+    {
+        try
+        {
+            ExpressionAccessor compiled =
+                MethodHandleExpressionCompiler.createAccessor( context, expression, rootClass );
+
+            if ( compiled != null && expression.getAccessor() == null )
+            {
+                expression.setAccessor( new RootClassAccessor( rootClass, compiled, expression ) );
+            }
+        }
+        catch ( Exception | LinkageError e )
+        {
+            // not compilable, stays interpreted
+        }
+    }
+
+    /**
+     * Tells whether the given accessor may evaluate the expression for the given root.
+     *
+     * @param accessor The accessor of an expression.
+     * @param root The root object of the evaluation.
+     * @return false if the accessor was compiled in the background for another class of root.
+     */
+    public static boolean isApplicable( ExpressionAccessor accessor, Object root )
+    {
+        return !( accessor instanceof RootClassAccessor ) || ( (RootClassAccessor) accessor ).accepts( root );
+    }
+
+    /**
+     * Accessor delegating to the compiled accessor for roots of the compiled class, interpreting the expression
+     * otherwise.
+     */
+    static final class RootClassAccessor
+        implements ExpressionAccessor
+    {
+
+        private final Class<?> rootClass;
+
+        private final ExpressionAccessor compiled;
+
+        private final Node expression;
+
+        RootClassAccessor( Class<?> rootClass, ExpressionAccessor compiled, Node expression )
+        {
+            this.rootClass = rootClass;
+            this.compiled = compiled;
+            this.expression = expression;
+        }
+
+        boolean accepts( Object root )
+        {
+            return root == null ? rootClass == null : root.getClass() == rootClass;
+        }
+
+        public Object get( OgnlContext context, Object target )
+        {
+            if ( accepts( target ) )
+            {
+                return compiled.get( context, target );
+            }
+            try
+            {
+                return expression.getValue( context, target );
+            }
+            catch ( RuntimeException e )
+            {
+                throw e;
+            }
+            catch ( Exception e )
+            {
+                throw new UndeclaredThrowableException( e );
+            }
+        }
+
+        public void set( OgnlContext context, Object target, Object value )
+        {
+            if ( accepts( target ) )
+            {
+                compiled.set( context, target, value );
+                return;
+            }
+            try
+            {
+                expression.setValue( context, target, value );
+            }
+            catch ( RuntimeException e )
+            {
+                throw e;
+            }
+            catch ( Exception e )
+            {
+                throw new UndeclaredThrowableException( e );
+            }
+        }
+
+        public void setExpression( Node expression )
+        {
+            compiled.setExpression( expression );
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package org.apache.commons.ognl.internal;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.ognl.internal.entry.CacheEntryFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link Cache} holding at most a given number of entries.
+ * <p>
+ * Entries live in a {@link ConcurrentHashMap}, so hits never block; a hit only marks the entry as recently used. When
+ * the cache grows past its maximum size, entries are evicted in insertion order, except that those used since the
+ * last sweep get a second chance (the CLOCK approximation of LRU). As in {@link ConcurrentHashMapCache}, a missing
+ * value is created at most once per key.
+ * </p>
+ */
+public class BoundedCache<K, V>
+    implements Cache<K, V>
+{
+    private final ConcurrentHashMap<Object, Node<V>> cache = new ConcurrentHashMap<Object, Node<V>>();
+
+    private final Queue<Node<V>> clock = new ConcurrentLinkedQueue<Node<V>>();
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    /* number of nodes still queued in the clock after their removal from the map */
+    private final AtomicInteger staleNodes = new AtomicInteger();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final int maximumSize;
+
+    private final CacheEntryFactory<K, V> cacheEntryFactory;
+
+    public BoundedCache( int maximumSize )
+    {
+        this( maximumSize, null );
+    }
+
+    /**
+     * @param maximumSize the maximum number of entries, {@link Integer#MAX_VALUE} disables eviction.
+     * @param cacheEntryFactory the factory creating missing entries, may be null.
+     */
+    public BoundedCache( int maximumSize, CacheEntryFactory<K, V> cacheEntryFactory )
+    {
+        if ( maximumSize <= 0 )
+        {
+            throw new IllegalArgumentException( "maximumSize must be positive: " + maximumSize );
+        }
+        this.maximumSize = maximumSize;
+        this.cacheEntryFactory = cacheEntryFactory;
+    }
+
+    public void clear()
+    {
+        evictionLock.lock();
+        try
+        {
+            cache.clear();
+            clock.clear();
+            staleNodes.set( 0 );
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+
+    public int getSize()
+    {
+        expungeStaleEntries();
+        return cache.size();
+    }
+
+    public int getMaximumSize()
+    {
+        return maximumSize;
+    }
+
+    public long getHitCount()
+    {
+        return hits.sum();
+    }
+
+    public long getMissCount()
+    {
+        return misses.sum();
+    }
+
+    public long getEvictionCount()
+    {
+        return evictions.sum();
+    }
+
+    public V get( K key )
+        throws CacheException
+    {
+        Node<V> node = cache.get( toLookupKey( key ) );
+        if ( node != null )
+        {
+            hits.increment();
+            if ( !node.referenced )
+            {
+                node.referenced = true;
+            }
+            return node.value;
+        }
+        misses.increment();
+        if ( cacheEntryFactory == null )
+        {
+            return null;
+        }
+        if ( !shouldCache( key ) )
+        {
+            return cacheEntryFactory.create( key );
+        }
+
+        expungeStaleEntries();
+        Object storeKey = toStoreKey( key );
+        Node<V> created = null;
+        node = cache.get( storeKey );
+        if ( node == null )
+        {
+            final Node<V>[] holder = newHolder();
+            node = cache.computeIfAbsent( storeKey, k -> {
+                V value = cacheEntryFactory.create( key );
+                if ( value == null )
+                {
+                    return null;
+                }
+                holder[0] = new Node<V>( k, value );
+                return holder[0];
+            } );
+            created = holder[0];
+        }
+        if ( node == null )
+        {
+            return null;
+        }
+        if ( node == created )
+        {
+            track( created );
+        }
+        return node.value;
+    }
+
+    public V put( K key, V value )
+    {
+        if ( !shouldCache( key ) )
+        {
+            return value;
+        }
+        expungeStaleEntries();
+        if ( value == null )
+        {
+            remove( toLookupKey( key ) );
+            return null;
+        }
+        final Node<V>[] holder = newHolder();
+        cache.compute( toStoreKey( key ), ( k, node ) -> {
+            if ( node == null )
+            {
+                holder[0] = new Node<V>( k, value );
+                return holder[0];
+            }
+            node.value = value;
+            return node;
+        } );
+        if ( holder[0] != null )
+        {
+            track( holder[0] );
+        }
+        return value;
+    }
+
+    public boolean contains( K key )
+    {
+        return cache.containsKey( toLookupKey( key ) );
+    }
+
+    /**
+     * Tells whether the value of the given key may be stored, invoked before storing any entry.
+     *
+     * @param key the key about to be stored.
+     * @return true by default.
+     */
+    protected boolean shouldCache( K key )
+    {
+        return true;
+    }
+
+    /**
+     * @param key a key as passed by the caller.
+     * @return the object used to look up {@code key} in the underlying map, the key itself by default.
+     */
+    protected Object toLookupKey( K key )
+    {
+        return key;
+    }
+
+    /**
+     * @param key a key as passed by the caller.
+     * @return the object stored as map key for {@code key}, the key itself by default. It must be equal to the
+     *         corresponding {@link #toLookupKey(Object)}.
+     */
+    protected Object toStoreKey( K key )
+    {
+        return key;
+    }
+
+    /**
+     * Hook allowing subclasses to drop the entries whose keys are no longer reachable.
+     */
+    protected void expungeStaleEntries()
+    {
+    }
+
+    /**
+     * Removes the entry stored under the given map key.
+     *
+     * @param mapKey a key as returned by {@link #toLookupKey(Object)} or {@link #toStoreKey(Object)}.
+     */
+    protected void remove( Object mapKey )
+    {
+        if ( cache.remove( mapKey ) != null && maximumSize != Integer.MAX_VALUE )
+        {
+            staleNodes.incrementAndGet();
+        }
+    }
+
+    private void track( Node<V> node )
+    {
+        if ( maximumSize == Integer.MAX_VALUE )
+        {
+            // unbounded, nothing will ever be evicted
+            return;
+        }
+        clock.add( node );
+        evictIfNeeded();
+    }
+
+    private void evictIfNeeded()
+    {
+        if ( ( cache.size() <= maximumSize && staleNodes.get() <= maximumSize ) || !evictionLock.tryLock() )
+        {
+            // nothing to do, or somebody else is already sweeping
+            return;
+        }
+        try
+        {
+            if ( staleNodes.get() > maximumSize )
+            {
+                staleNodes.set( 0 );
+                clock.removeIf( node -> cache.get( node.key ) != node );
+            }
+            Node<V> node;
+            while ( cache.size() > maximumSize && ( node = clock.poll() ) != null )
+            {
+                if ( cache.get( node.key ) != node )
+                {
+                    // replaced or removed in the meantime
+                    continue;
+                }
+                if ( node.referenced )
+                {
+                    node.referenced = false;
+                    clock.add( node );
+                }
+                else if ( cache.remove( node.key, node ) )
+                {
+                    evictions.increment();
+                }
+            }
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+
+    @SuppressWarnings( { "rawtypes", "unchecked" } ) // generic arrays can't be created
+    private static <V> Node<V>[] newHolder()
+    {
+        return new Node[1];
+    }
+
+    private static final class Node<V>
+    {
+        final Object key;
+
+        volatile V value;
+
+        volatile boolean referenced;
+
+        Node( Object key, V value )
+        {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.apache.commons.ognl.internal;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.ognl.internal.entry.CacheEntryFactory;
+import org.apache.commons.ognl.internal.entry.ClassCacheEntryFactory;
+
+/**
+ * Creates {@link BoundedCache}s, and {@link BoundedClassCache}s never keeping their classes from being unloaded.
+ * <p>
+ * Class caches created without an entry factory are registries fed explicitly (accessors, null handlers): they are
+ * never evicted, since an evicted registration could not be recreated, but their entries still go away with their
+ * classes, registered accessors dedicated to a class included.
+ * </p>
+ */
+public class BoundedCacheFactory
+    implements CacheFactory
+{
+    /**
+     * System property holding the maximum size of the caches created by the default constructor.
+     */
+    public static final String MAXIMUM_SIZE_PROPERTY = "ognl.cache.maximumSize";
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 4096;
+
+    private final int maximumSize;
+
+    /**
+     * Creates caches holding at most {@link #MAXIMUM_SIZE_PROPERTY} entries, {@link #DEFAULT_MAXIMUM_SIZE} if not set.
+     */
+    public BoundedCacheFactory()
+    {
+        this( getDefaultMaximumSize() );
+    }
+
+    public BoundedCacheFactory( int maximumSize )
+    {
+        if ( maximumSize <= 0 )
+        {
+            throw new IllegalArgumentException( "maximumSize must be positive: " + maximumSize );
+        }
+        this.maximumSize = maximumSize;
+    }
+
+    public int getMaximumSize()
+    {
+        return maximumSize;
+    }
+
+    public <K, V> Cache<K, V> createCache( CacheEntryFactory<K, V> entryFactory )
+    {
+        return new BoundedCache<K, V>( maximumSize, entryFactory );
+    }
+
+    public <V> ClassCache<V> createClassCache()
+    {
+        return new BoundedClassCache<V>( Integer.MAX_VALUE, null );
+    }
+
+    public <V> ClassCache<V> createClassCache( ClassCacheEntryFactory<V> entryFactory )
+    {
+        return new BoundedClassCache<V>( maximumSize, entryFactory );
+    }
+
+    private static int getDefaultMaximumSize()
+    {
+        try
+        {
+            return Integer.getInteger( MAXIMUM_SIZE_PROPERTY, DEFAULT_MAXIMUM_SIZE );
+        }
+        catch ( SecurityException ex )
+        {
+            // restricted access environment, just keep defaults
+            return DEFAULT_MAXIMUM_SIZE;
+        }
+    }
+}
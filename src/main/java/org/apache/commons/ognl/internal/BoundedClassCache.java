@@ -0,0 +1,367 @@
+package org.apache.commons.ognl.internal;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.ognl.ClassCacheInspector;
+import org.apache.commons.ognl.internal.entry.CacheEntryFactory;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link ClassCache} holding at most a given number of entries, none of which keeps its class, nor the class loader of
+ * that class, from being collected.
+ * <p>
+ * Values are stored with their class through a {@link ClassValue}: a value referring to its own class, like a map of
+ * its methods or an accessor dedicated to it, is then only reachable from that class and is collected together with
+ * it. The cache itself only refers to its classes weakly, to evict them with the same CLOCK approximation of LRU as
+ * {@link BoundedCache}. As there, a missing value is created at most once per class.
+ * </p>
+ */
+public class BoundedClassCache<T>
+    implements ClassCache<T>
+{
+    /**
+     * Number of released keys tolerated in the clock besides the live ones before it is swept.
+     */
+    private static final int SWEEP_THRESHOLD = 64;
+
+    private final ClassValue<Slot<T>> slots = new ClassValue<Slot<T>>()
+    {
+        @Override
+        protected Slot<T> computeValue( Class<?> type )
+        {
+            return new Slot<T>();
+        }
+    };
+
+    /* keys of the classes holding a value, in insertion order */
+    private final Queue<Key> clock = new ConcurrentLinkedQueue<Key>();
+
+    private final ReferenceQueue<Class<?>> queue = new ReferenceQueue<Class<?>>();
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    /* number of keys still queued in the clock after their release */
+    private final AtomicInteger staleKeys = new AtomicInteger();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final int maximumSize;
+
+    private final CacheEntryFactory<Class<?>, T> entryFactory;
+
+    private ClassCacheInspector inspector;
+
+    /**
+     * @param maximumSize the maximum number of entries, {@link Integer#MAX_VALUE} disables eviction.
+     * @param entryFactory the factory creating missing entries, may be null.
+     */
+    public BoundedClassCache( int maximumSize, CacheEntryFactory<Class<?>, T> entryFactory )
+    {
+        if ( maximumSize <= 0 )
+        {
+            throw new IllegalArgumentException( "maximumSize must be positive: " + maximumSize );
+        }
+        this.maximumSize = maximumSize;
+        this.entryFactory = entryFactory;
+    }
+
+    public void setClassInspector( ClassCacheInspector inspector )
+    {
+        this.inspector = inspector;
+    }
+
+    public void clear()
+    {
+        evictionLock.lock();
+        try
+        {
+            Key key;
+            while ( ( key = clock.poll() ) != null )
+            {
+                Class<?> type = key.get();
+                if ( type == null )
+                {
+                    release( key );
+                    continue;
+                }
+                Slot<T> slot = slots.get( type );
+                synchronized ( slot )
+                {
+                    if ( slot.key == key )
+                    {
+                        remove( slot );
+                    }
+                }
+            }
+            staleKeys.set( 0 );
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+
+    public int getSize()
+    {
+        expungeStaleEntries();
+        return size.get();
+    }
+
+    public int getMaximumSize()
+    {
+        return maximumSize;
+    }
+
+    public long getHitCount()
+    {
+        return hits.sum();
+    }
+
+    public long getMissCount()
+    {
+        return misses.sum();
+    }
+
+    public long getEvictionCount()
+    {
+        return evictions.sum();
+    }
+
+    public T get( Class<?> key )
+        throws CacheException
+    {
+        Slot<T> slot = slots.get( key );
+        T value = slot.value;
+        if ( value != null )
+        {
+            hits.increment();
+            if ( !slot.referenced )
+            {
+                slot.referenced = true;
+            }
+            return value;
+        }
+        misses.increment();
+        if ( entryFactory == null )
+        {
+            return null;
+        }
+        if ( !shouldCache( key ) )
+        {
+            return entryFactory.create( key );
+        }
+
+        expungeStaleEntries();
+        synchronized ( slot )
+        {
+            value = slot.value;
+            if ( value == null )
+            {
+                value = entryFactory.create( key );
+                if ( value != null )
+                {
+                    store( slot, key, value );
+                }
+            }
+        }
+        evictIfNeeded();
+        return value;
+    }
+
+    public T put( Class<?> key, T value )
+    {
+        if ( !shouldCache( key ) )
+        {
+            return value;
+        }
+        expungeStaleEntries();
+        Slot<T> slot = slots.get( key );
+        synchronized ( slot )
+        {
+            if ( value == null )
+            {
+                if ( slot.key != null )
+                {
+                    staleKeys.incrementAndGet();
+                    remove( slot );
+                }
+                return null;
+            }
+            store( slot, key, value );
+        }
+        evictIfNeeded();
+        return value;
+    }
+
+    public boolean contains( Class<?> key )
+    {
+        return slots.get( key ).value != null;
+    }
+
+    private boolean shouldCache( Class<?> key )
+    {
+        return inspector == null || inspector.shouldCache( key );
+    }
+
+    /**
+     * Stores the value of a class, holding the lock of its slot.
+     */
+    private void store( Slot<T> slot, Class<?> type, T value )
+    {
+        if ( slot.key == null )
+        {
+            slot.key = new Key( type, queue );
+            size.incrementAndGet();
+            clock.add( slot.key );
+        }
+        slot.value = value;
+    }
+
+    /**
+     * Removes the value of a class, holding the lock of its slot.
+     */
+    private void remove( Slot<T> slot )
+    {
+        Key key = slot.key;
+        slot.key = null;
+        slot.value = null;
+        slot.referenced = false;
+        release( key );
+    }
+
+    private void release( Key key )
+    {
+        if ( key.released.compareAndSet( false, true ) )
+        {
+            size.decrementAndGet();
+        }
+    }
+
+    /**
+     * Accounts for the entries of the classes collected since the last call.
+     */
+    private void expungeStaleEntries()
+    {
+        Reference<? extends Class<?>> reference;
+        while ( ( reference = queue.poll() ) != null )
+        {
+            Key key = (Key) reference;
+            if ( !key.released.get() )
+            {
+                release( key );
+                staleKeys.incrementAndGet();
+            }
+        }
+    }
+
+    private void evictIfNeeded()
+    {
+        if ( ( size.get() <= maximumSize && staleKeys.get() <= size.get() + SWEEP_THRESHOLD )
+            || !evictionLock.tryLock() )
+        {
+            // nothing to do, or somebody else is already sweeping
+            return;
+        }
+        try
+        {
+            if ( staleKeys.get() > size.get() + SWEEP_THRESHOLD )
+            {
+                staleKeys.set( 0 );
+                clock.removeIf( key -> key.released.get() );
+            }
+            Key key;
+            while ( size.get() > maximumSize && ( key = clock.poll() ) != null )
+            {
+                Class<?> type = key.get();
+                if ( type == null )
+                {
+                    // collected in the meantime
+                    release( key );
+                    continue;
+                }
+                Slot<T> slot = slots.get( type );
+                synchronized ( slot )
+                {
+                    if ( slot.key != key )
+                    {
+                        // replaced or removed in the meantime
+                        continue;
+                    }
+                    if ( slot.referenced )
+                    {
+                        slot.referenced = false;
+                        clock.add( key );
+                    }
+                    else
+                    {
+                        remove( slot );
+                        evictions.increment();
+                    }
+                }
+            }
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Value of a class, only reachable from the class itself.
+     */
+    private static final class Slot<T>
+    {
+        /* guarded by the slot for writes */
+        volatile T value;
+
+        Key key;
+
+        volatile boolean referenced;
+    }
+
+    /**
+     * Entry of a class in the clock, not referring to the value so as not to keep the class reachable.
+     */
+    private static final class Key
+        extends WeakReference<Class<?>>
+    {
+        final AtomicBoolean released = new AtomicBoolean();
+
+        Key( Class<?> type, ReferenceQueue<Class<?>> queue )
+        {
+            super( type, queue );
+        }
+    }
+}
@@ -23,27 +23,47 @@ package org.apache.commons.ognl.internal;
  */
 
 import org.apache.commons.ognl.ClassCacheInspector;
+import org.apache.commons.ognl.internal.entry.CacheEntryFactory;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Implementation of {@link ClassCache}.
+ * <p>
+ * Entries are chained in a power of 2 sized table which doubles whenever it gets three quarters full. Chains are
+ * immutable and published through volatile writes, so reads are wait-free; writers serialize on the cache and copy
+ * the chain they modify.
+ * </p>
  */
 public class ClassCacheImpl<V>
     implements ClassCache<V>
 {
 
     /* this MUST be a power of 2 */
-    private static final int TABLE_SIZE = 512;
+    private static final int DEFAULT_TABLE_SIZE = 512;
 
-    /* ...and now you see why. The table size is used as a mask for generating hashes */
-    private static final int TABLE_SIZE_MASK = TABLE_SIZE - 1;
+    private static final int MAXIMUM_TABLE_SIZE = 1 << 30;
 
-    private final Entry<Class<?>, V>[] table = new Entry[TABLE_SIZE];
+    private volatile AtomicReferenceArray<Entry<Class<?>, V>> table;
 
-    private ClassCacheInspector classInspector;
+    private final CacheEntryFactory<Class<?>, V> cacheEntryFactory;
 
-    private int size;
+    private volatile ClassCacheInspector classInspector;
+
+    private volatile int size;
+
+    public ClassCacheImpl()
+    {
+        this( null );
+    }
+
+    public ClassCacheImpl( CacheEntryFactory<Class<?>, V> cacheEntryFactory )
+    {
+        this.cacheEntryFactory = cacheEntryFactory;
+        table = new AtomicReferenceArray<Entry<Class<?>, V>>( DEFAULT_TABLE_SIZE );
+    }
 
     /**
      * {@inheritDoc}
@@ -56,10 +76,9 @@ public class ClassCacheImpl<V>
     /**
      * {@inheritDoc}
      */
-    public void clear()
+    public synchronized void clear()
     {
-        Arrays.fill(table, null);
-
+        table = new AtomicReferenceArray<Entry<Class<?>, V>>( DEFAULT_TABLE_SIZE );
         size = 0;
     }
 
@@ -77,20 +96,35 @@ public class ClassCacheImpl<V>
     public final V get( Class<?> key )
         throws CacheException
     {
-        int i = key.hashCode() & TABLE_SIZE_MASK;
-
-        Entry<Class<?>, V> entry = table[i];
+        Entry<Class<?>, V> entry = find( table, key );
+        if ( entry != null )
+        {
+            return entry.getValue();
+        }
+        if ( cacheEntryFactory == null )
+        {
+            return null;
+        }
 
-        while ( entry != null )
+        ClassCacheInspector inspector = classInspector;
+        if ( inspector != null && !inspector.shouldCache( key ) )
         {
-            if ( key == entry.getKey() )
+            return cacheEntryFactory.create( key );
+        }
+        synchronized ( this )
+        {
+            entry = find( table, key );
+            if ( entry != null )
             {
                 return entry.getValue();
             }
-
-            entry = entry.getNext();
+            V value = cacheEntryFactory.create( key );
+            if ( value != null )
+            {
+                store( key, value );
+            }
+            return value;
         }
-        return null;
     }
 
     /**
@@ -98,62 +132,101 @@ public class ClassCacheImpl<V>
      */
     public final V put( Class<?> key, V value )
     {
-        if ( classInspector != null && !classInspector.shouldCache( key ) )
+        ClassCacheInspector inspector = classInspector;
+        if ( inspector != null && !inspector.shouldCache( key ) )
         {
             return value;
         }
 
-        V result = null;
-        int i = key.hashCode() & TABLE_SIZE_MASK;
+        synchronized ( this )
+        {
+            return store( key, value );
+        }
+    }
 
-        Entry<Class<?>, V> entry = table[i];
+    private static <V> Entry<Class<?>, V> find( AtomicReferenceArray<Entry<Class<?>, V>> table, Class<?> key )
+    {
+        Entry<Class<?>, V> entry = table.get( indexFor( key, table.length() ) );
 
-        if ( entry == null )
+        while ( entry != null )
         {
-            table[i] = new Entry<Class<?>, V>( key, value );
-            size++;
+            if ( key == entry.getKey() )
+            {
+                return entry;
+            }
+
+            entry = entry.getNext();
         }
-        else
+        return null;
+    }
+
+    /* must be invoked while holding the lock on this */
+    private V store( Class<?> key, V value )
+    {
+        AtomicReferenceArray<Entry<Class<?>, V>> tab = table;
+        int i = indexFor( key, tab.length() );
+        Entry<Class<?>, V> head = tab.get( i );
+
+        V result = null;
+        Entry<Class<?>, V> newHead = new Entry<Class<?>, V>( key, value, null );
+        boolean replaced = false;
+        /* copy the chain, dropping the entry being replaced */
+        for ( Entry<Class<?>, V> entry = head; entry != null; entry = entry.getNext() )
         {
             if ( key == entry.getKey() )
             {
                 result = entry.getValue();
-                entry.setValue( value );
+                replaced = true;
             }
             else
             {
-                while ( true )
-                {
-                    if ( key == entry.getKey() )
-                    {
-                        /* replace value */
-                        result = entry.getValue();
-                        entry.setValue( value );
-                        break;
-                    }
-
-                    if ( entry.getNext() == null )
-                    {
-                        /* add value */
-                        entry.setNext( new Entry<Class<?>, V>( key, value ) );
-                        break;
-                    }
-
-                    entry = entry.getNext();
-                }
+                newHead = new Entry<Class<?>, V>( entry.getKey(), entry.getValue(), newHead );
             }
         }
+        tab.set( i, newHead );
 
+        if ( !replaced && ++size > ( tab.length() >> 2 ) * 3 && tab.length() < MAXIMUM_TABLE_SIZE )
+        {
+            resize( tab );
+        }
         return result;
     }
 
+    /* must be invoked while holding the lock on this */
+    private void resize( AtomicReferenceArray<Entry<Class<?>, V>> oldTable )
+    {
+        AtomicReferenceArray<Entry<Class<?>, V>> newTable =
+            new AtomicReferenceArray<Entry<Class<?>, V>>( oldTable.length() << 1 );
+        for ( int i = 0; i < oldTable.length(); i++ )
+        {
+            for ( Entry<Class<?>, V> entry = oldTable.get( i ); entry != null; entry = entry.getNext() )
+            {
+                int j = indexFor( entry.getKey(), newTable.length() );
+                newTable.set( j, new Entry<Class<?>, V>( entry.getKey(), entry.getValue(), newTable.get( j ) ) );
+            }
+        }
+        table = newTable;
+    }
+
+    private static int indexFor( Class<?> key, int length )
+    {
+        int h = System.identityHashCode( key );
+        return ( h ^ ( h >>> 16 ) ) & ( length - 1 );
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public String toString()
     {
-        return "ClassCacheImpl[" + "_table=" + ( table == null ? null : Arrays.asList( table ) ) + '\n'
+        AtomicReferenceArray<Entry<Class<?>, V>> tab = table;
+        List<Entry<Class<?>, V>> entries = new ArrayList<Entry<Class<?>, V>>( tab.length() );
+        for ( int i = 0; i < tab.length(); i++ )
+        {
+            entries.add( tab.get( i ) );
+        }
+        return "ClassCacheImpl[" + "_table=" + entries + '\n'
             + ", _classInspector=" + classInspector + '\n' + ", _size=" + size + '\n' + ']';
     }
 
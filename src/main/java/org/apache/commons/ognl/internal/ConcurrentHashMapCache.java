@@ -25,6 +25,13 @@ import org.apache.commons.ognl.internal.entry.CacheEntryFactory;
 
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Lock-free {@link Cache} backed by a {@link ConcurrentHashMap}.
+ * <p>
+ * Hits never block. On a miss the value is computed at most once per key: concurrent readers of the same missing key
+ * wait for the first one to run the {@link CacheEntryFactory}, while readers of other keys proceed unhindered.
+ * </p>
+ */
 public class ConcurrentHashMapCache<K, V>
     implements Cache<K, V>
 {
@@ -57,7 +64,11 @@ public class ConcurrentHashMapCache<K, V>
         V v = cache.get( key );
         if ( shouldCreate( cacheEntryFactory, v ) )
         {
-            return put( key, cacheEntryFactory.create( key ) );
+            if ( !shouldCache( key ) )
+            {
+                return cacheEntryFactory.create( key );
+            }
+            return cache.computeIfAbsent( key, cacheEntryFactory::create );
         }
         return v;
     }
@@ -68,18 +79,35 @@ public class ConcurrentHashMapCache<K, V>
         return cacheEntryFactory != null && v == null;
     }
 
+    /**
+     * Tells whether the value of the given key may be stored, invoked before storing any entry.
+     *
+     * @param key the key about to be stored.
+     * @return true by default.
+     */
+    protected boolean shouldCache( K key )
+    {
+        return true;
+    }
+
     public V put( K key, V value )
     {
-        V collision = cache.putIfAbsent( key, value );
-        if ( collision != null )
+        if ( shouldCache( key ) )
         {
-            return collision;
+            if ( value == null )
+            {
+                cache.remove( key );
+            }
+            else
+            {
+                cache.put( key, value );
+            }
         }
         return value;
     }
 
     public boolean contains( K key )
     {
-        return this.cache.contains( key );
+        return this.cache.containsKey( key );
     }
 }
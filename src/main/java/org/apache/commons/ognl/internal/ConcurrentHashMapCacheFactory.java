@@ -36,7 +36,7 @@ public class ConcurrentHashMapCacheFactory
 
     public <V> ClassCache<V> createClassCache()
     {
-        return createClassCache( null );
+        return new ClassCacheImpl<V>();
     }
 
     public <V> ClassCache<V> createClassCache( ClassCacheEntryFactory<V> entryFactory )
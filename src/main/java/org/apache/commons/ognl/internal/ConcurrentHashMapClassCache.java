@@ -42,12 +42,8 @@ public class ConcurrentHashMapClassCache<T>
     }
 
     @Override
-    public T put( Class<?> key, T value )
+    protected boolean shouldCache( Class<?> key )
     {
-        if ( inspector != null && !inspector.shouldCache( key ) )
-        {
-            return value;
-        }
-        return super.put( key, value );
+        return inspector == null || inspector.shouldCache( key );
     }
 }
@@ -20,22 +20,24 @@ package org.apache.commons.ognl.internal;
  */
 
 /**
- * Used by {@link ClassCacheImpl} to store entries in the cache.
+ * Used by {@link ClassCacheImpl} to store entries in the cache. Entries are immutable, so that a chain can be read
+ * while another one is being built to replace it.
  * <p/>
  */
 class Entry<K, V>
 {
 
-    private Entry<K, V> next;
+    private final Entry<K, V> next;
 
     private final K key;
 
-    private V value;
+    private final V value;
 
-    public Entry( K key, V value )
+    public Entry( K key, V value, Entry<K, V> next )
     {
         this.key = key;
         this.value = value;
+        this.next = next;
     }
 
     public K getKey()
@@ -48,21 +50,11 @@ class Entry<K, V>
         return value;
     }
 
-    public void setValue( V value )
-    {
-        this.value = value;
-    }
-
     public Entry<K, V> getNext()
     {
         return next;
     }
 
-    public void setNext( Entry<K, V> next )
-    {
-        this.next = next;
-    }
-
     @Override
     public String toString()
     {
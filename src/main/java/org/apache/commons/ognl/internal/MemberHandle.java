@@ -0,0 +1,280 @@
+package org.apache.commons.ognl.internal;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * A {@link Method}, {@link Constructor} or {@link Field} access resolved once to a {@link MethodHandle} of type
+ * <code>(Object target, Object[] args)Object</code>.
+ * <p>
+ * Only public members of public classes are resolved, so a handle never grants an access reflection would refuse:
+ * other members stay subject to the {@link org.apache.commons.ognl.MemberAccess} setup of their callers, except for
+ * the methods explicitly resolved from an {@link #forAccessibleMethod(Method) accessible copy}. The handle
+ * only is {@link #isApplicable(Object, Object[]) applicable} to a target and arguments reflection would accept without
+ * any conversion: anything else, as well as members the handle couldn't be created for, is left to reflection.
+ * </p>
+ */
+public final class MemberHandle
+{
+
+    private static final MethodType INVOKER_TYPE =
+        MethodType.methodType( Object.class, Object.class, Object[].class );
+
+    private static final MemberHandle UNAVAILABLE = new MemberHandle( null, null, new Class<?>[0] );
+
+    private final MethodHandle handle;
+
+    private final Class<?> receiverType;
+
+    /**
+     * Parameter types, primitives replaced by their wrapper class.
+     */
+    private final Class<?>[] argumentTypes;
+
+    private final boolean[] primitives;
+
+    private MemberHandle( MethodHandle handle, Class<?> receiverType, Class<?>[] parameterTypes )
+    {
+        this.handle = handle;
+        this.receiverType = receiverType;
+        argumentTypes = new Class<?>[parameterTypes.length];
+        primitives = new boolean[parameterTypes.length];
+        for ( int i = 0; i < parameterTypes.length; i++ )
+        {
+            primitives[i] = parameterTypes[i].isPrimitive();
+            argumentTypes[i] = MethodType.methodType( parameterTypes[i] ).wrap().returnType();
+        }
+    }
+
+    /**
+     * Resolves the invocation of a method.
+     *
+     * @param method the method.
+     * @return the resolved invocation, never null but possibly not applicable to anything.
+     */
+    public static MemberHandle forMethod( Method method )
+    {
+        try
+        {
+            return create( requirePublic( method ) );
+        }
+        catch ( Exception e )
+        {
+            return UNAVAILABLE;
+        }
+    }
+
+    /**
+     * Resolves the invocation of a method of any visibility, from a copy of the method made accessible by
+     * {@link Method#setAccessible(boolean)}. The handle doesn't check the access to the method again: it must only be
+     * invoked once the {@link org.apache.commons.ognl.MemberAccess} of the caller allowed it.
+     *
+     * @param accessibleMethod the accessible copy of the method, not shared with code toggling its accessibility.
+     * @return the resolved invocation, never null but possibly not applicable to anything.
+     */
+    public static MemberHandle forAccessibleMethod( Method accessibleMethod )
+    {
+        try
+        {
+            return create( accessibleMethod );
+        }
+        catch ( Exception e )
+        {
+            return UNAVAILABLE;
+        }
+    }
+
+    private static MemberHandle create( Method method )
+        throws IllegalAccessException
+    {
+        MethodHandle handle = MethodHandles.lookup().unreflect( method );
+        boolean isStatic = Modifier.isStatic( method.getModifiers() );
+        if ( isStatic )
+        {
+            handle = MethodHandles.dropArguments( handle, 0, Object.class );
+        }
+        return create( handle, isStatic ? null : method.getDeclaringClass(), method.getParameterTypes() );
+    }
+
+    /**
+     * Resolves the invocation of a constructor, ignoring the target.
+     *
+     * @param constructor the constructor.
+     * @return the resolved invocation, never null but possibly not applicable to anything.
+     */
+    public static MemberHandle forConstructor( Constructor<?> constructor )
+    {
+        try
+        {
+            MethodHandle handle = MethodHandles.lookup().unreflectConstructor( requirePublic( constructor ) );
+            return create( MethodHandles.dropArguments( handle, 0, Object.class ), null,
+                           constructor.getParameterTypes() );
+        }
+        catch ( Exception e )
+        {
+            return UNAVAILABLE;
+        }
+    }
+
+    /**
+     * Resolves reading an instance field of the target, without arguments.
+     *
+     * @param field the field.
+     * @return the resolved access, never null but possibly not applicable to anything.
+     */
+    public static MemberHandle forFieldGetter( Field field )
+    {
+        try
+        {
+            if ( Modifier.isStatic( field.getModifiers() ) )
+            {
+                return UNAVAILABLE;
+            }
+            MethodHandle handle = MethodHandles.lookup().unreflectGetter( requirePublic( field ) );
+            return create( handle, field.getDeclaringClass(), new Class<?>[0] );
+        }
+        catch ( Exception e )
+        {
+            return UNAVAILABLE;
+        }
+    }
+
+    /**
+     * Resolves reading a static field, ignoring the target, without arguments.
+     *
+     * @param field the field.
+     * @return the resolved access, never null but possibly not applicable to anything.
+     */
+    public static MemberHandle forStaticFieldGetter( Field field )
+    {
+        try
+        {
+            if ( !Modifier.isStatic( field.getModifiers() ) )
+            {
+                return UNAVAILABLE;
+            }
+            MethodHandle handle = MethodHandles.lookup().unreflectGetter( requirePublic( field ) );
+            return create( MethodHandles.dropArguments( handle, 0, Object.class ), null, new Class<?>[0] );
+        }
+        catch ( Exception e )
+        {
+            return UNAVAILABLE;
+        }
+    }
+
+    /**
+     * Resolves writing an instance field of the target, with the value as single argument; the invocation returns
+     * null.
+     *
+     * @param field the field.
+     * @return the resolved access, never null but possibly not applicable to anything.
+     */
+    public static MemberHandle forFieldSetter( Field field )
+    {
+        try
+        {
+            if ( Modifier.isStatic( field.getModifiers() ) || Modifier.isFinal( field.getModifiers() ) )
+            {
+                return UNAVAILABLE;
+            }
+            MethodHandle handle = MethodHandles.lookup().unreflectSetter( requirePublic( field ) );
+            return create( handle, field.getDeclaringClass(), new Class<?>[] { field.getType() } );
+        }
+        catch ( Exception e )
+        {
+            return UNAVAILABLE;
+        }
+    }
+
+    private static <T extends Member> T requirePublic( T member )
+        throws IllegalAccessException
+    {
+        if ( !Modifier.isPublic( member.getModifiers() )
+            || !Modifier.isPublic( member.getDeclaringClass().getModifiers() ) )
+        {
+            throw new IllegalAccessException( member + " is not public" );
+        }
+        return member;
+    }
+
+    private static MemberHandle create( MethodHandle handle, Class<?> receiverType, Class<?>[] parameterTypes )
+    {
+        MethodHandle invoker =
+            handle.asFixedArity().asSpreader( Object[].class, parameterTypes.length ).asType( INVOKER_TYPE );
+        return new MemberHandle( invoker, receiverType, parameterTypes );
+    }
+
+    /**
+     * Tells whether the handle can be invoked with the given target and arguments: the receiver and each argument
+     * must be instances of the declared types, primitive parameters requiring their exact wrapper class.
+     *
+     * @param target the target, ignored by static members and constructors.
+     * @param args the arguments.
+     * @return true if {@link #invoke(Object, Object[])} can be used.
+     */
+    public boolean isApplicable( Object target, Object[] args )
+    {
+        if ( handle == null || args.length != argumentTypes.length
+            || ( receiverType != null && !receiverType.isInstance( target ) ) )
+        {
+            return false;
+        }
+        for ( int i = 0; i < args.length; i++ )
+        {
+            Object arg = args[i];
+            if ( arg == null ? primitives[i]
+                : primitives[i] ? arg.getClass() != argumentTypes[i] : !argumentTypes[i].isInstance( arg ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Invokes the handle, only after checking it {@link #isApplicable(Object, Object[]) is applicable}.
+     *
+     * @param target the target.
+     * @param args the arguments.
+     * @return the result of the invocation, null for void methods and field writes.
+     * @throws InvocationTargetException wrapping anything thrown by the member.
+     */
+    public Object invoke( Object target, Object[] args )
+        throws InvocationTargetException
+    {
+        try
+        {
+            return (Object) handle.invokeExact( target, args );
+        }
+        catch ( Throwable t )
+        {
+            throw new InvocationTargetException( t );
+        }
+    }
+}
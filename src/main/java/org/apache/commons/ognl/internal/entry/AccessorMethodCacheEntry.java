@@ -0,0 +1,78 @@
+package org.apache.commons.ognl.internal.entry;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Key of the read and write methods found by name for a class, as looked up by
+ * {@link org.apache.commons.ognl.OgnlRuntime#getReadMethod(Class, String, int)} and
+ * {@link org.apache.commons.ognl.OgnlRuntime#getWriteMethod(Class, String, int)}.
+ */
+public class AccessorMethodCacheEntry
+    implements CacheEntry
+{
+    public final Class<?> targetClass;
+
+    public final String name;
+
+    public final int numParms;
+
+    public final AccessorType type;
+
+    public enum AccessorType
+    {
+        READ, WRITE
+    }
+
+    public AccessorMethodCacheEntry( Class<?> targetClass, String name, int numParms, AccessorType type )
+    {
+        this.targetClass = targetClass;
+        this.name = name;
+        this.numParms = numParms;
+        this.type = type;
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( this == o )
+        {
+            return true;
+        }
+        if ( !( o instanceof AccessorMethodCacheEntry ) )
+        {
+            return false;
+        }
+
+        AccessorMethodCacheEntry that = (AccessorMethodCacheEntry) o;
+
+        return targetClass.equals( that.targetClass ) && name.equals( that.name ) && numParms == that.numParms
+            && type == that.type;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int result = targetClass.hashCode();
+        result = 31 * result + name.hashCode();
+        result = 31 * result + numParms;
+        result = 31 * result + type.hashCode();
+        return result;
+    }
+}
@@ -0,0 +1,88 @@
+package org.apache.commons.ognl.internal.entry;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.reflect.Member;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Key of the overload chosen among methods or constructors of the same name for the runtime classes of the arguments
+ * of a call, as resolved by {@link org.apache.commons.ognl.OgnlRuntime#getAppropriateMethod} and
+ * {@link org.apache.commons.ognl.OgnlRuntime#callConstructor}.
+ */
+public class OverloadCacheEntry
+    implements CacheEntry
+{
+    /**
+     * Class of the target, against which generic parameter types are resolved; may be null.
+     */
+    public final Class<?> targetClass;
+
+    /**
+     * Methods or constructors to choose from, compared by identity: the lists cached by
+     * {@link org.apache.commons.ognl.OgnlRuntime} for a class and a name are the same on every call, and comparing
+     * their elements would cost a pass over the overloads on each lookup.
+     */
+    public final List<? extends Member> members;
+
+    /**
+     * Classes of the arguments, with null elements for null arguments.
+     */
+    public final Class<?>[] argumentClasses;
+
+    private final int hashCode;
+
+    public OverloadCacheEntry( Class<?> targetClass, List<? extends Member> members, Class<?>[] argumentClasses )
+    {
+        this.targetClass = targetClass;
+        this.members = members;
+        this.argumentClasses = argumentClasses;
+
+        int result = targetClass == null ? 0 : targetClass.hashCode();
+        result = 31 * result + System.identityHashCode( members );
+        result = 31 * result + Arrays.hashCode( argumentClasses );
+        hashCode = result;
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( this == o )
+        {
+            return true;
+        }
+        if ( !( o instanceof OverloadCacheEntry ) )
+        {
+            return false;
+        }
+
+        OverloadCacheEntry that = (OverloadCacheEntry) o;
+
+        return hashCode == that.hashCode && targetClass == that.targetClass
+            && members == that.members && Arrays.equals( argumentClasses, that.argumentClasses );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hashCode;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.ognl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Member;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link BeanPropertyAccessor}s registered when {@link OgnlRuntime#getGeneratePropertyAccessors()} is on.
+ */
+public class BeanPropertyAccessorTest
+{
+
+    private boolean previous;
+
+    private OgnlContext context;
+
+    @Before
+    public void setUp()
+    {
+        previous = OgnlRuntime.getGeneratePropertyAccessors();
+        OgnlRuntime.setGeneratePropertyAccessors( true );
+        context = (OgnlContext) Ognl.createDefaultContext( null );
+    }
+
+    @After
+    public void tearDown()
+    {
+        OgnlRuntime.setGeneratePropertyAccessors( previous );
+    }
+
+    @Test
+    public void testGetAndSet()
+        throws Exception
+    {
+        Bean bean = new Bean();
+        Ognl.setValue( "name", context, bean, "first" );
+        Ognl.setValue( "count", context, bean, 3 );
+        assertEquals( "first", Ognl.getValue( "name", context, bean ) );
+        assertEquals( (Object) 3, Ognl.getValue( "count", context, bean ) );
+        assertEquals( (Object) true, Ognl.getValue( "active", context, bean ) );
+
+        PropertyAccessor accessor = OgnlRuntime.getPropertyAccessor( Bean.class );
+        assertTrue( accessor instanceof BeanPropertyAccessor );
+        assertSame( Bean.class, ( (BeanPropertyAccessor) accessor ).getBeanClass() );
+    }
+
+    @Test
+    public void testFallbacks()
+        throws Exception
+    {
+        Bean bean = new Bean();
+        Ognl.setValue( "count", context, bean, "7" );
+        assertEquals( 7, bean.getCount() );
+        Ognl.setValue( "count", context, bean, 8L );
+        assertEquals( 8, bean.getCount() );
+        bean.field = "public";
+        assertEquals( "public", Ognl.getValue( "field", context, bean ) );
+
+        SubBean sub = new SubBean();
+        Ognl.setValue( "name", context, sub, "sub" );
+        assertEquals( "sub", Ognl.getValue( "name", context, sub ) );
+        assertSame( SubBean.class,
+                    ( (BeanPropertyAccessor) OgnlRuntime.getPropertyAccessor( SubBean.class ) ).getBeanClass() );
+
+        try
+        {
+            Ognl.getValue( "missing", context, bean );
+            fail( "missing shouldn't be found" );
+        }
+        catch ( NoSuchPropertyException e )
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void testMemberAccessChecked()
+        throws Exception
+    {
+        Bean bean = new Bean();
+        bean.setName( "hidden" );
+        OgnlContext denying = new OgnlContext( null, null, new DefaultMemberAccess( false )
+        {
+            @Override
+            public boolean isAccessible( Map<String, Object> context, Object target, Member member,
+                                         String propertyName )
+            {
+                return !"name".equals( propertyName ) && super.isAccessible( context, target, member, propertyName );
+            }
+        } );
+        assertEquals( "hidden", Ognl.getValue( "name", context, bean ) );
+        try
+        {
+            Ognl.getValue( "name", denying, bean );
+            fail( "name shouldn't be accessible" );
+        }
+        catch ( NoSuchPropertyException e )
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRegisteredAccessorKept()
+        throws Exception
+    {
+        ObjectPropertyAccessor custom = new ObjectPropertyAccessor()
+        {
+            @Override
+            public Object getPossibleProperty( Map<String, Object> context, Object target, String name )
+            {
+                return "custom";
+            }
+        };
+        OgnlRuntime.setPropertyAccessor( CustomBean.class, custom );
+        assertSame( custom, OgnlRuntime.getPropertyAccessor( CustomBean.class ) );
+        assertEquals( "custom", Ognl.getValue( "name", context, new CustomBean() ) );
+    }
+
+    public static class Bean
+    {
+        public String field;
+
+        private String name;
+
+        private int count;
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public void setName( String name )
+        {
+            this.name = name;
+        }
+
+        public int getCount()
+        {
+            return count;
+        }
+
+        public void setCount( int count )
+        {
+            this.count = count;
+        }
+
+        public boolean isActive()
+        {
+            return true;
+        }
+    }
+
+    public static class SubBean
+        extends Bean
+    {
+    }
+
+    public static class CustomBean
+        extends Bean
+    {
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.ognl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Member;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests the decisions remembered by {@link CachingMemberAccess}.
+ */
+public class CachingMemberAccessTest
+{
+
+    @Test
+    public void testAccessibleMembersCheckedOnce()
+        throws Exception
+    {
+        CountingMemberAccess counting = new CountingMemberAccess( true );
+        OgnlContext context = new OgnlContext( null, null, new CachingMemberAccess( counting ) );
+        Bean bean = new Bean();
+        for ( int i = 0; i < 3; i++ )
+        {
+            assertEquals( "secret", Ognl.getValue( "secret", context, bean ) );
+            Ognl.setValue( "secret", context, bean, "secret" );
+        }
+        assertEquals( 1, counting.checks );
+        assertEquals( 0, counting.setups );
+        assertEquals( 0, counting.restores );
+    }
+
+    @Test
+    public void testDeniedMembersCheckedOnce()
+        throws Exception
+    {
+        CountingMemberAccess counting = new CountingMemberAccess( false );
+        CachingMemberAccess caching = new CachingMemberAccess( counting );
+        OgnlContext context = new OgnlContext( null, null, caching );
+        for ( int i = 0; i < 3; i++ )
+        {
+            try
+            {
+                Ognl.getValue( "secret", context, new Bean() );
+                fail( "secret shouldn't be accessible" );
+            }
+            catch ( NoSuchPropertyException e )
+            {
+                // expected
+            }
+        }
+        assertEquals( 1, counting.checks );
+
+        caching.clear();
+        counting.allow = true;
+        assertEquals( "secret", Ognl.getValue( "secret", context, new Bean() ) );
+        assertEquals( 2, counting.checks );
+    }
+
+    private static class CountingMemberAccess
+        extends DefaultMemberAccess
+    {
+        boolean allow;
+
+        int checks;
+
+        int setups;
+
+        int restores;
+
+        CountingMemberAccess( boolean allow )
+        {
+            super( true );
+            this.allow = allow;
+        }
+
+        @Override
+        public boolean isAccessible( Map<String, Object> context, Object target, Member member, String propertyName )
+        {
+            checks++;
+            return allow;
+        }
+
+        @Override
+        public Object setup( Map<String, Object> context, Object target, Member member, String propertyName )
+        {
+            setups++;
+            return super.setup( context, target, member, propertyName );
+        }
+
+        @Override
+        public void restore( Map<String, Object> context, Object target, Member member, String propertyName,
+                             Object state )
+        {
+            restores++;
+            super.restore( context, target, member, propertyName, state );
+        }
+    }
+
+    public static class Bean
+    {
+        private String secret = "secret";
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.ognl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Member;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the inline caches of property, method and constructor nodes.
+ */
+public class CallSiteCacheTest
+{
+
+    private OgnlContext context;
+
+    @Before
+    public void setUp()
+    {
+        context = (OgnlContext) Ognl.createDefaultContext( null );
+    }
+
+    @Test
+    public void testPolymorphicReceivers()
+        throws Exception
+    {
+        Node property = (Node) Ognl.parseExpression( "name" );
+        Object[] receivers = { new First(), new Second(), new First(), new Second() };
+        for ( int round = 0; round < 3; round++ )
+        {
+            for ( Object receiver : receivers )
+            {
+                assertEquals( receiver.getClass().getSimpleName(), Ognl.getValue( property, context, receiver ) );
+            }
+        }
+        assertEquals( "map", Ognl.getValue( property, context, Collections.singletonMap( "name", "map" ) ) );
+        assertEquals( "value", Ognl.getValue( property, context, new Field() ) );
+    }
+
+    @Test
+    public void testOverloadsResolvedByArgumentClasses()
+        throws Exception
+    {
+        Node method = (Node) Ognl.parseExpression( "describe(#argument)" );
+        Object[] arguments = { 1, "one", 2L, 3, "two" };
+        String[] expected = { "int", "String", "Object", "int", "String" };
+        for ( int i = 0; i < arguments.length; i++ )
+        {
+            context.put( "argument", arguments[i] );
+            assertEquals( expected[i], Ognl.getValue( method, context, new First() ) );
+        }
+    }
+
+    @Test
+    public void testInvalidatedByAccessorRegistration()
+        throws Exception
+    {
+        Node property = (Node) Ognl.parseExpression( "name" );
+        assertEquals( "Third", Ognl.getValue( property, context, new Third() ) );
+
+        OgnlRuntime.setPropertyAccessor( Third.class, new ObjectPropertyAccessor()
+        {
+            @Override
+            public Object getProperty( Map<String, Object> context, Object target, Object oname )
+            {
+                return "registered";
+            }
+        } );
+        assertEquals( "registered", Ognl.getValue( property, context, new Third() ) );
+    }
+
+    @Test
+    public void testMemberAccessCheckedOnEveryCall()
+        throws Exception
+    {
+        Node method = (Node) Ognl.parseExpression( "describe(1)" );
+        assertEquals( "int", Ognl.getValue( method, context, new First() ) );
+
+        context.setMemberAccess( new DefaultMemberAccess( false )
+        {
+            @Override
+            public boolean isAccessible( Map<String, Object> context, Object target, Member member,
+                                         String propertyName )
+            {
+                return false;
+            }
+        } );
+        try
+        {
+            Ognl.getValue( method, context, new First() );
+            fail( "the method shouldn't be accessible" );
+        }
+        catch ( MethodFailedException e )
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void testStaticMembersBound()
+        throws Exception
+    {
+        String statics = "@" + Statics.class.getName() + "@";
+        Node method = (Node) Ognl.parseExpression( statics + "describe(#argument)" );
+        Node constructor = (Node) Ognl.parseExpression( "new " + Statics.class.getName() + "(#argument).kind" );
+        Node field = (Node) Ognl.parseExpression( statics + "counter" );
+        Object[] arguments = { 1, "one", 2L, 3 };
+        String[] expected = { "int", "String", "Object", "int" };
+        for ( int i = 0; i < arguments.length; i++ )
+        {
+            context.put( "argument", arguments[i] );
+            assertEquals( expected[i], Ognl.getValue( method, context, (Object) null ) );
+            assertEquals( expected[i], Ognl.getValue( constructor, context, (Object) null ) );
+
+            Statics.counter = i;
+            assertEquals( (Object) i, Ognl.getValue( field, context, (Object) null ) );
+        }
+    }
+
+    @Test
+    public void testStaticClassRebound()
+        throws Exception
+    {
+        Node method = (Node) Ognl.parseExpression( "@Statics@describe(\"value\")" );
+        context.setClassResolver( new ClassResolver()
+        {
+            public Class<?> classForName( String className, Map<String, Object> context )
+                throws ClassNotFoundException
+            {
+                return Statics.class;
+            }
+        } );
+        assertEquals( "String", Ognl.getValue( method, context, (Object) null ) );
+
+        context.setClassResolver( new ClassResolver()
+        {
+            public Class<?> classForName( String className, Map<String, Object> context )
+                throws ClassNotFoundException
+            {
+                return OtherStatics.class;
+            }
+        } );
+        assertEquals( "other", Ognl.getValue( method, context, (Object) null ) );
+    }
+
+    public static class Statics
+    {
+        public static int counter;
+
+        public final String kind;
+
+        public Statics( int value )
+        {
+            kind = "int";
+        }
+
+        public Statics( String value )
+        {
+            kind = "String";
+        }
+
+        public Statics( Object value )
+        {
+            kind = "Object";
+        }
+
+        public static String describe( int value )
+        {
+            return "int";
+        }
+
+        public static String describe( String value )
+        {
+            return "String";
+        }
+
+        public static String describe( Object value )
+        {
+            return "Object";
+        }
+    }
+
+    public static class OtherStatics
+    {
+        public static String describe( Object value )
+        {
+            return "other";
+        }
+    }
+
+    public static class First
+    {
+        public String getName()
+        {
+            return getClass().getSimpleName();
+        }
+
+        public String describe( int value )
+        {
+            return "int";
+        }
+
+        public String describe( String value )
+        {
+            return "String";
+        }
+
+        public String describe( Object value )
+        {
+            return "Object";
+        }
+    }
+
+    public static class Second
+        extends First
+    {
+    }
+
+    public static class Third
+        extends First
+    {
+    }
+
+    public static class Field
+    {
+        public String name = "value";
+    }
+}
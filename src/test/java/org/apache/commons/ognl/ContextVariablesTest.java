@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.ognl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the reserved keys of {@link OgnlContext} and the variables read by slot.
+ */
+public class ContextVariablesTest
+{
+
+    private OgnlContext context;
+
+    @Before
+    public void setUp()
+    {
+        context = (OgnlContext) Ognl.createDefaultContext( "root" );
+    }
+
+    @Test
+    public void testReservedKeys()
+    {
+        assertSame( context, context.get( OgnlContext.CONTEXT_CONTEXT_KEY ) );
+        assertEquals( "root", context.get( OgnlContext.ROOT_CONTEXT_KEY ) );
+        assertSame( OgnlContext.DEFAULT_MEMBER_ACCESS, context.get( OgnlContext.MEMBER_ACCESS_CONTEXT_KEY ) );
+
+        assertEquals( "root", context.put( OgnlContext.ROOT_CONTEXT_KEY, "other" ) );
+        assertEquals( "other", context.getRoot() );
+        assertEquals( Boolean.FALSE, context.put( OgnlContext.LAZY_COLLECTIONS_CONTEXT_KEY, Boolean.TRUE ) );
+        assertTrue( context.getLazyCollections() );
+        assertEquals( "other", context.remove( OgnlContext.ROOT_CONTEXT_KEY ) );
+        assertNull( context.getRoot() );
+        assertTrue( context.isEmpty() );
+
+        try
+        {
+            context.put( OgnlContext.CONTEXT_CONTEXT_KEY, null );
+            fail( "the context key shouldn't be changed" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // expected
+        }
+        try
+        {
+            context.remove( OgnlContext.TRACE_EVALUATIONS_CONTEXT_KEY );
+            fail( "the trace evaluations key shouldn't be removed" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // expected
+        }
+        assertNull( context.get( 1 ) );
+    }
+
+    @Test
+    public void testReservedKeysHaveNoSlot()
+    {
+        assertEquals( -1, OgnlContext.getVariableSlot( OgnlContext.ROOT_CONTEXT_KEY ) );
+        int slot = OgnlContext.getVariableSlot( "slotted" );
+        assertTrue( slot >= 0 );
+        assertEquals( slot, OgnlContext.getVariableSlot( "slotted" ) );
+    }
+
+    @Test
+    public void testVariablesFollowChanges()
+        throws Exception
+    {
+        Node expression = (Node) Ognl.parseExpression( "#counter" );
+        assertNull( Ognl.getValue( expression, context, (Object) null ) );
+
+        context.put( "counter", 1 );
+        assertEquals( (Object) 1, Ognl.getValue( expression, context, (Object) null ) );
+        Ognl.getValue( "#counter = #counter + 1", context, (Object) null );
+        assertEquals( (Object) 2, Ognl.getValue( expression, context, (Object) null ) );
+        context.remove( "counter" );
+        assertNull( Ognl.getValue( expression, context, (Object) null ) );
+        context.setValues( Collections.<String, Object>singletonMap( "counter", 3 ) );
+        assertEquals( (Object) 3, Ognl.getValue( expression, context, (Object) null ) );
+        context.clear();
+        assertNull( Ognl.getValue( expression, context, (Object) null ) );
+
+        context.put( "counter", 4 );
+        assertEquals( (Object) 4, Ognl.getValue( expression, context, (Object) null ) );
+        context.getValues().put( "counter", 5 );
+        assertEquals( (Object) 5, Ognl.getValue( expression, context, (Object) null ) );
+
+        assertEquals( "other", Ognl.getValue( "#root", context, "other" ) );
+        assertSame( context, Ognl.getValue( "#context", context, (Object) null ) );
+    }
+
+    @Test
+    public void testSuppliedValues()
+        throws Exception
+    {
+        Map<String, Object> values = new HashMap<String, Object>();
+        OgnlContext supplied = new OgnlContext( values );
+        Node expression = (Node) Ognl.parseExpression( "#counter" );
+
+        values.put( "counter", 1 );
+        assertEquals( (Object) 1, Ognl.getValue( expression, supplied, (Object) null ) );
+        values.put( "counter", 2 );
+        assertEquals( (Object) 2, Ognl.getValue( expression, supplied, (Object) null ) );
+    }
+
+    @Test
+    public void testOverriddenGet()
+        throws Exception
+    {
+        OgnlContext dynamic = new OgnlContext()
+        {
+            @Override
+            public Object get( Object key )
+            {
+                return "dyn".equals( key ) ? "computed" : super.get( key );
+            }
+        };
+        dynamic.put( "counter", 1 );
+        assertEquals( "computed", Ognl.getValue( "#dyn", dynamic, (Object) null ) );
+        assertEquals( (Object) 1, Ognl.getValue( "#counter", dynamic, (Object) null ) );
+    }
+}
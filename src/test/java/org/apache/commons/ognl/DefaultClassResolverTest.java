@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.ognl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the caching of {@link DefaultClassResolver} by context class loader.
+ */
+public class DefaultClassResolverTest
+{
+
+    private ClassLoader previous;
+
+    private CountingClassLoader loader;
+
+    @Before
+    public void setUp()
+    {
+        previous = Thread.currentThread().getContextClassLoader();
+        loader = new CountingClassLoader( getClass().getClassLoader() );
+        Thread.currentThread().setContextClassLoader( loader );
+    }
+
+    @After
+    public void tearDown()
+    {
+        Thread.currentThread().setContextClassLoader( previous );
+    }
+
+    @Test
+    public void testResolvedOnce()
+        throws Exception
+    {
+        DefaultClassResolver resolver = new DefaultClassResolver();
+        assertSame( String.class, resolver.classForName( "String" ) );
+        assertSame( String.class, resolver.classForName( "String" ) );
+        assertSame( String.class, resolver.classForName( "java.lang.String" ) );
+        assertSame( getClass(), resolver.classForName( getClass().getName() ) );
+        assertSame( getClass(), resolver.classForName( getClass().getName() ) );
+        assertEquals( 3, loader.requested.size() );
+    }
+
+    @Test
+    public void testUnresolvableNamesRemembered()
+        throws Exception
+    {
+        DefaultClassResolver resolver = new DefaultClassResolver();
+        for ( String name : new String[] { "org.example.Missing", "Missing", "org.example.Missing", "Missing" } )
+        {
+            try
+            {
+                resolver.classForName( name );
+                fail( name + " shouldn't be resolved" );
+            }
+            catch ( ClassNotFoundException e )
+            {
+                // expected
+            }
+        }
+        assertEquals( 3, loader.requested.size() );
+    }
+
+    @Test
+    public void testPartitionedByContextClassLoader()
+        throws Exception
+    {
+        DefaultClassResolver resolver = new DefaultClassResolver();
+        resolver.classForName( "Integer" );
+
+        CountingClassLoader other = new CountingClassLoader( getClass().getClassLoader() );
+        Thread.currentThread().setContextClassLoader( other );
+        assertSame( Integer.class, resolver.classForName( "Integer" ) );
+        assertEquals( 2, other.requested.size() );
+
+        Thread.currentThread().setContextClassLoader( loader );
+        assertSame( Integer.class, resolver.classForName( "Integer" ) );
+        assertEquals( 2, loader.requested.size() );
+    }
+
+    private static class CountingClassLoader
+        extends ClassLoader
+    {
+        final List<String> requested = new ArrayList<String>();
+
+        CountingClassLoader( ClassLoader parent )
+        {
+            super( parent );
+        }
+
+        @Override
+        public Class<?> loadClass( String name )
+            throws ClassNotFoundException
+        {
+            requested.add( name );
+            return super.loadClass( name );
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.ognl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ExpressionCacheTest
+{
+
+    @Test
+    public void testHitsAndMisses()
+        throws Exception
+    {
+        ExpressionCache cache = new ExpressionCache( 16 );
+        Node first = cache.get( "name.length()" );
+        assertSame( first, cache.get( "name.length()" ) );
+        assertEquals( 1, cache.getMissCount() );
+        assertEquals( 1, cache.getHitCount() );
+
+        cache.invalidate( "name.length()" );
+        assertNotSame( first, cache.get( "name.length()" ) );
+        assertEquals( 2, cache.getMissCount() );
+    }
+
+    @Test
+    public void testPreload()
+        throws Exception
+    {
+        ExpressionCache cache = new ExpressionCache( 16 );
+        cache.preload( Arrays.asList( "a", "b + 1", "c[0]" ) );
+        assertEquals( 3, cache.getSize() );
+        cache.get( "b + 1" );
+        assertEquals( 1, cache.getHitCount() );
+        cache.clear();
+        assertEquals( 0, cache.getSize() );
+    }
+
+    @Test
+    public void testSyntaxErrorIsNotCached()
+        throws Exception
+    {
+        ExpressionCache cache = new ExpressionCache( 16 );
+        for ( int i = 0; i < 2; i++ )
+        {
+            try
+            {
+                cache.get( "a +" );
+                fail( "expected ExpressionSyntaxException" );
+            }
+            catch ( ExpressionSyntaxException e )
+            {
+                // expected
+            }
+        }
+        assertEquals( 0, cache.getSize() );
+    }
+
+    @Test
+    public void testDisabled()
+        throws Exception
+    {
+        ExpressionCache cache = new ExpressionCache( 0 );
+        assertFalse( cache.isEnabled() );
+        assertNotSame( cache.get( "a" ), cache.get( "a" ) );
+        assertEquals( 0, cache.getSize() );
+    }
+
+    @Test
+    public void testStringOverloadsUseCache()
+        throws Exception
+    {
+        ExpressionCache previous = Ognl.getExpressionCache();
+        ExpressionCache cache = new ExpressionCache( 16 );
+        Ognl.setExpressionCache( cache );
+        try
+        {
+            assertEquals( 3, (int) Ognl.<Integer> getValue( "length()", "abc" ) );
+            assertEquals( 3, (int) Ognl.<Integer> getValue( "length()", "xyz" ) );
+            assertEquals( 1, cache.getMissCount() );
+            assertEquals( 1, cache.getHitCount() );
+        }
+        finally
+        {
+            Ognl.setExpressionCache( previous );
+        }
+    }
+
+    @Test
+    public void testEvaluatedStringsUseCache()
+        throws Exception
+    {
+        ExpressionCache previous = Ognl.getExpressionCache();
+        ExpressionCache cache = new ExpressionCache( 16 );
+        Ognl.setExpressionCache( cache );
+        try
+        {
+            OgnlContext context = (OgnlContext) Ognl.createDefaultContext( null );
+            context.put( "rule", "length() > 2" );
+            Node expression = (Node) Ognl.parseExpression( "(#rule)(#root)" );
+            assertEquals( Boolean.TRUE, Ognl.getValue( expression, context, "abc" ) );
+            assertEquals( Boolean.FALSE, Ognl.getValue( expression, context, "ab" ) );
+            assertEquals( 1, cache.getMissCount() );
+            assertEquals( 1, cache.getHitCount() );
+            assertEquals( 0.5, cache.getHitRate(), 0 );
+        }
+        finally
+        {
+            Ognl.setExpressionCache( previous );
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.ognl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the simplification of parsed trees.
+ */
+public class ExpressionSimplifierTest
+{
+
+    private Map<String, Object> root;
+
+    private OgnlContext context;
+
+    @Before
+    public void setUp()
+    {
+        root = new HashMap<String, Object>();
+        root.put( "name", "first" );
+        root.put( "other", "second" );
+        context = (OgnlContext) Ognl.createDefaultContext( root );
+    }
+
+    private Node simplify( String expression, Object expected )
+        throws OgnlException
+    {
+        Node tree = (Node) Ognl.simplifyExpression( Ognl.parseExpression( expression ) );
+        assertNull( tree.jjtGetParent() );
+        assertEquals( expression, expected, Ognl.getValue( tree, context, root ) );
+        assertEquals( expression, ( (SimpleNode) tree ).getSource() );
+        return tree;
+    }
+
+    @Test
+    public void testConstantsFolded()
+        throws Exception
+    {
+        Node tree = simplify( "1 + 2 * 3", 7 );
+        assertTrue( tree instanceof ASTConst );
+
+        tree = simplify( "@java.lang.Integer@MAX_VALUE - 1 + \"\"", String.valueOf( Integer.MAX_VALUE - 1 ) );
+        assertTrue( tree instanceof ASTConst );
+
+        tree = simplify( "name + (1 * 3)", "first3" );
+        assertTrue( tree instanceof ASTAdd );
+        assertEquals( 3, ( (ASTConst) tree.jjtGetChild( 1 ) ).getValue() );
+        assertEquals( tree, tree.jjtGetChild( 1 ).jjtGetParent() );
+
+        tree = simplify( "{1, 2}.size() + 1", 3 );
+        assertTrue( tree instanceof ASTAdd );
+    }
+
+    @Test
+    public void testFailuresLeftToEvaluation()
+        throws Exception
+    {
+        Node tree = (Node) Ognl.simplifyExpression( Ognl.parseExpression( "1 / 0" ) );
+        assertTrue( tree instanceof ASTDivide );
+        try
+        {
+            Ognl.getValue( tree, context, root );
+            fail( "division by zero" );
+        }
+        catch ( ArithmeticException e )
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void testNonFiniteResultsNotFolded()
+        throws Exception
+    {
+        Node tree = simplify( "1.0 / 0", Double.POSITIVE_INFINITY );
+        assertTrue( tree instanceof ASTDivide );
+        simplify( "-1.0 / 0", Double.NEGATIVE_INFINITY );
+        simplify( "0.0 / 0", Double.NaN );
+
+        // the folded form would be written, and compiled, as the property Infinity
+        tree = simplify( "name + 1.0 / 0", "firstInfinity" );
+        assertEquals( "firstInfinity", Ognl.getValue( tree.toString(), context, root ) );
+        OgnlRuntime.compileExpression( context, tree, root );
+        assertEquals( "firstInfinity", tree.getAccessor().get( context, root ) );
+    }
+
+    @Test
+    public void testConstantBranchesResolved()
+        throws Exception
+    {
+        assertTrue( simplify( "1 > 0 ? name : other", "first" ) instanceof ASTProperty );
+        assertTrue( simplify( "true && name", "first" ) instanceof ASTProperty );
+        assertTrue( simplify( "0 || other", "second" ) instanceof ASTProperty );
+
+        Node tree = simplify( "name || false || other", "first" );
+        assertTrue( tree instanceof ASTOr );
+        assertEquals( 2, tree.jjtGetNumChildren() );
+
+        tree = simplify( "name && false && other && name", false );
+        assertEquals( 3, tree.jjtGetNumChildren() );
+
+        // setting through an operator stopped by a constant does nothing, as before
+        Ognl.setValue( simplify( "false && name", false ), context, root, "changed" );
+        assertEquals( "first", root.get( "name" ) );
+    }
+
+    @Test
+    public void testSingleElementWrappersCollapsed()
+        throws Exception
+    {
+        assertTrue( simplify( "(1, 2, name)", "first" ) instanceof ASTProperty );
+
+        Node tree = simplify( "(#a = 1, 2, #a)", 1 );
+        assertTrue( tree instanceof ASTSequence );
+        assertEquals( 2, tree.jjtGetNumChildren() );
+    }
+}
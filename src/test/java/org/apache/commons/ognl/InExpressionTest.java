@@ -20,6 +20,16 @@ package org.apache.commons.ognl;
 
 import static junit.framework.Assert.assertEquals;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.Test;
 
 /**
@@ -39,4 +49,119 @@ public class InExpressionTest
         context.put( "name", "Austin" );
         assertEquals( Boolean.TRUE, Ognl.getValue( node, context, root ) );
     }
+
+    @Test
+    public void test_Hashed_Set_Lookup()
+        throws Exception
+    {
+        OgnlContext context = (OgnlContext) Ognl.createDefaultContext( null );
+        Set<Object> allowed = new HashSet<Object>( Arrays.<Object>asList( 1L, 2L, 3L, null ) );
+        context.put( "allowed", allowed );
+        Object in = Ognl.parseExpression( "#id in #allowed" );
+        Object notIn = Ognl.parseExpression( "#id not in #allowed" );
+
+        context.put( "id", 2L );
+        assertEquals( Boolean.TRUE, Ognl.getValue( in, context, (Object) null ) );
+        context.put( "id", 4L );
+        assertEquals( Boolean.FALSE, Ognl.getValue( in, context, (Object) null ) );
+        assertEquals( Boolean.TRUE, Ognl.getValue( notIn, context, (Object) null ) );
+        context.put( "id", null );
+        assertEquals( Boolean.TRUE, Ognl.getValue( in, context, (Object) null ) );
+
+        // equality still converts between types missed by the lookup
+        context.put( "id", 3 );
+        assertEquals( Boolean.TRUE, Ognl.getValue( in, context, (Object) null ) );
+        context.put( "id", "1" );
+        assertEquals( Boolean.TRUE, Ognl.getValue( in, context, (Object) null ) );
+        allowed.remove( null );
+        context.put( "id", 2.0 );
+        assertEquals( Boolean.TRUE, Ognl.getValue( in, context, (Object) null ) );
+    }
+
+    @Test
+    public void test_Constant_List_Lookup()
+        throws Exception
+    {
+        OgnlContext context = (OgnlContext) Ognl.createDefaultContext( null );
+        Object in = Ognl.parseExpression( "#id in {1, 2, -3}" );
+
+        for ( int i = 0; i < 2; i++ )
+        {
+            context.put( "id", -3 );
+            assertEquals( Boolean.TRUE, Ognl.getValue( in, context, (Object) null ) );
+            context.put( "id", 4 );
+            assertEquals( Boolean.FALSE, Ognl.getValue( in, context, (Object) null ) );
+            context.put( "id", 2L );
+            assertEquals( Boolean.TRUE, Ognl.getValue( in, context, (Object) null ) );
+        }
+
+        context.put( "id", 2 );
+        context.put( "other", 2 );
+        assertEquals( Boolean.TRUE, Ognl.getValue( "#id in {1, #other}", context, (Object) null ) );
+        assertEquals( Boolean.FALSE, Ognl.getValue( "#id not in {1, #other}", context, (Object) null ) );
+    }
+
+    @Test
+    public void test_Hashed_Set_Converted_Lookup()
+        throws Exception
+    {
+        OgnlContext context = (OgnlContext) Ognl.createDefaultContext( null );
+        Object in = Ognl.parseExpression( "#id in #allowed" );
+        Object[][] found = { { 5, 5L }, { 5, "5" }, { 5L, (short) 5 }, { "5", 5 }, { " 5 ", 5.0 }, { "0.5", 0.5f },
+            { 'a', 97 }, { true, 1 }, { 0, -0.0 }, { 7, new BigDecimal( "7" ) }, { 7, BigInteger.valueOf( 7 ) } };
+        for ( Object[] pair : found )
+        {
+            context.put( "id", pair[0] );
+            context.put( "allowed", new HashSet<Object>( Arrays.asList( 1, pair[1] ) ) );
+            assertEquals( pair[0] + " in " + pair[1], Boolean.TRUE, Ognl.getValue( in, context, (Object) null ) );
+        }
+
+        Set<Integer> ids = new HashSet<Integer>();
+        for ( int i = 0; i < 50000; i++ )
+        {
+            ids.add( i * 2 );
+        }
+        context.put( "allowed", ids );
+        for ( Object missing : new Object[] { 3, 3L, "3", 'a', true } )
+        {
+            context.put( "id", missing );
+            assertEquals( String.valueOf( missing ), Boolean.FALSE, Ognl.getValue( in, context, (Object) null ) );
+        }
+    }
+
+    @Test
+    public void test_Identity_Set_Enumerated()
+        throws Exception
+    {
+        OgnlContext context = (OgnlContext) Ognl.createDefaultContext( null );
+        Set<Object> roles = Collections.newSetFromMap( new IdentityHashMap<Object, Boolean>() );
+        roles.add( new String( "admin" ) );
+        context.put( "roles", roles );
+        assertEquals( Boolean.TRUE, Ognl.getValue( "'admin' in #roles", context, (Object) null ) );
+    }
+
+    @Test
+    public void test_Converted_Elements_Found()
+        throws Exception
+    {
+        OgnlContext context = (OgnlContext) Ognl.createDefaultContext( null );
+        assertEquals( Boolean.TRUE, Ognl.getValue( "5 in {'05'}", context, (Object) null ) );
+        assertEquals( Boolean.TRUE, Ognl.getValue( "5 in {'5.0'}", context, (Object) null ) );
+        assertEquals( Boolean.FALSE, Ognl.getValue( "5 not in {'05'}", context, (Object) null ) );
+        assertEquals( Boolean.FALSE, Ognl.getValue( "5 not in {'5.0'}", context, (Object) null ) );
+        assertEquals( Boolean.TRUE, Ognl.getValue( "'05' in {5, 6}", context, (Object) null ) );
+        assertEquals( Boolean.FALSE, Ognl.getValue( "'05' in {'5', '6'}", context, (Object) null ) );
+
+        Object in = Ognl.parseExpression( "5 in #elements" );
+        Object notIn = Ognl.parseExpression( "5 not in #elements" );
+        for ( Object element : Arrays.<Object>asList( "05", "5.0", new BigDecimal( "5.0" ), new AtomicInteger( 5 ) ) )
+        {
+            List<Object> list = Collections.singletonList( element );
+            context.put( "elements", list );
+            assertEquals( Boolean.TRUE, Ognl.getValue( in, context, (Object) null ) );
+            context.put( "elements", new HashSet<Object>( list ) );
+            assertEquals( Boolean.TRUE, Ognl.getValue( in, context, (Object) null ) );
+            assertEquals( Boolean.FALSE, Ognl.getValue( notIn, context, (Object) null ) );
+        }
+    }
 }
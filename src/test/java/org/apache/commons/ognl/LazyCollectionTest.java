@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.ognl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the lazy evaluation of selections and projections.
+ */
+public class LazyCollectionTest
+{
+
+    private OgnlContext context;
+
+    @Before
+    public void setUp()
+    {
+        List<Integer> numbers = new ArrayList<Integer>();
+        for ( int i = 0; i < 1000; i++ )
+        {
+            numbers.add( i );
+        }
+        context = (OgnlContext) Ognl.createDefaultContext( null );
+        context.put( "numbers", numbers );
+        context.put( "evaluations", 0 );
+        context.setLazyCollections( true );
+    }
+
+    @Test
+    public void testEvaluatedOnIteration()
+        throws Exception
+    {
+        Object result = Ognl.getValue( "#numbers.{? #this % 2 == 0 }.{ #evaluations = #evaluations + 1, #this * 3 }",
+                                       context, (Object) null );
+
+        assertTrue( result instanceof LazyCollection );
+        assertEquals( 0, context.get( "evaluations" ) );
+
+        Collection<?> values = (Collection<?>) result;
+        assertEquals( Arrays.asList( 0, 6, 12 ), new ArrayList<Object>( values ).subList( 0, 3 ) );
+        assertEquals( 500, context.get( "evaluations" ) );
+    }
+
+    @Test
+    public void testChainedOperationsAreFused()
+        throws Exception
+    {
+        Object first = Ognl.getValue( "#numbers.{ #evaluations = #evaluations + 1, #this * 2 }.{^ #this > 10 }",
+                                      context, (Object) null );
+
+        assertEquals( Arrays.asList( 12 ), first );
+        assertEquals( 7, context.get( "evaluations" ) );
+    }
+
+    @Test
+    public void testSizeOfProjectionDoesNotEvaluate()
+        throws Exception
+    {
+        assertEquals( (Object) 1000, Ognl.getValue( "#numbers.{ #evaluations = #evaluations + 1 }.size()", context,
+                                                    (Object) null ) );
+        assertEquals( 0, context.get( "evaluations" ) );
+        assertEquals( (Object) 100, Ognl.getValue( "#numbers.{? #this < 100 }.size()", context, (Object) null ) );
+    }
+
+    @Test
+    public void testFailureOnIteration()
+        throws Exception
+    {
+        Collection<?> values =
+            (Collection<?>) Ognl.getValue( "#numbers.{ #this.noSuchProperty }", context, (Object) null );
+        try
+        {
+            values.iterator().next();
+            fail( "the element expression should have failed" );
+        }
+        catch ( UndeclaredThrowableException e )
+        {
+            assertTrue( e.getCause() instanceof NoSuchPropertyException );
+        }
+    }
+
+    @Test
+    public void testListOperations()
+        throws Exception
+    {
+        context.put( "l", Arrays.asList( 1, 2, 3 ) );
+        assertEquals( (Object) 2, Ognl.getValue( "#l.{? #this > 1 }[0]", context, (Object) null ) );
+        assertEquals( (Object) 6, Ognl.getValue( "#l.{ #this * 2 }[2]", context, (Object) null ) );
+        assertEquals( Boolean.TRUE, Ognl.getValue( "#l.{ #this } == #l", context, (Object) null ) );
+
+        List<?> values = (List<?>) Ognl.getValue( "#numbers.{ #evaluations = #evaluations + 1, #this * 2 }", context,
+                                                  (Object) null );
+        assertEquals( (Object) 20, values.get( 10 ) );
+        assertEquals( 1, context.get( "evaluations" ) );
+        assertEquals( 5, values.indexOf( 10 ) );
+        assertEquals( Arrays.asList( 4, 6 ), values.subList( 2, 4 ) );
+        assertEquals( new ArrayList<Object>( values ).hashCode(), values.hashCode() );
+    }
+}
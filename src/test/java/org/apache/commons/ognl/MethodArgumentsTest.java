@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.ognl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the reuse of the argument arrays of method calls.
+ */
+public class MethodArgumentsTest
+{
+
+    private OgnlContext context;
+
+    @Before
+    public void setUp()
+    {
+        context = (OgnlContext) Ognl.createDefaultContext( null );
+    }
+
+    @Test
+    public void testArraysReused()
+    {
+        assertSame( OgnlRuntime.NoArguments, context.acquireArguments( 0 ) );
+
+        Object[] outer = context.acquireArguments( 2 );
+        Object[] inner = context.acquireArguments( 2 );
+        assertNotSame( outer, inner );
+        inner[0] = "value";
+        context.releaseArguments( inner );
+        context.releaseArguments( outer );
+
+        assertSame( outer, context.acquireArguments( 2 ) );
+        Object[] reused = context.acquireArguments( 2 );
+        assertSame( inner, reused );
+        assertArrayEquals( new Object[2], reused );
+
+        int length = OgnlContext.MAXIMUM_POOLED_ARGUMENTS + 1;
+        Object[] large = context.acquireArguments( length );
+        context.releaseArguments( large );
+        assertNotSame( large, context.acquireArguments( length ) );
+    }
+
+    @Test
+    public void testNestedCalls()
+        throws Exception
+    {
+        Node expression = (Node) Ognl.parseExpression( "add(add(1, 2), add(add(3, 4), 5))" );
+        for ( int i = 0; i < 3; i++ )
+        {
+            assertEquals( (Object) 15, Ognl.getValue( expression, context, new Calculator() ) );
+        }
+        assertEquals( "a-b", Ognl.getValue( "join(\"-\", \"a\", null, \"b\")", context, new Calculator() ) );
+    }
+
+    @Test
+    public void testArgumentsReleasedOnFailure()
+        throws Exception
+    {
+        Node expression = (Node) Ognl.parseExpression( "fail(1)" );
+        for ( int i = 0; i < 3; i++ )
+        {
+            try
+            {
+                Ognl.getValue( expression, context, new Calculator() );
+            }
+            catch ( MethodFailedException e )
+            {
+                // expected
+            }
+        }
+        assertEquals( (Object) 3, Ognl.getValue( "add(1, 2)", context, new Calculator() ) );
+    }
+
+    public static class Calculator
+    {
+        public int add( int a, int b )
+        {
+            return a + b;
+        }
+
+        public String join( String separator, Object... values )
+        {
+            StringBuilder result = new StringBuilder();
+            for ( Object value : values )
+            {
+                if ( result.length() > 0 )
+                {
+                    result.append( separator );
+                }
+                result.append( value );
+            }
+            return result.toString();
+        }
+
+        public void fail( int value )
+        {
+            throw new IllegalStateException();
+        }
+    }
+}
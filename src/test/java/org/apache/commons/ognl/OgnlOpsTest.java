@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.ognl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the operators computed on primitive values and the boxing of their results.
+ */
+public class OgnlOpsTest
+{
+
+    @Test
+    public void testOperandsOfTheSamePrimitiveType()
+    {
+        assertEquals( Integer.valueOf( 3 ), OgnlOps.add( 1, 2 ) );
+        assertEquals( Integer.valueOf( Integer.MIN_VALUE ), OgnlOps.add( Integer.MAX_VALUE, 1 ) );
+        assertEquals( Integer.valueOf( Integer.MIN_VALUE ), OgnlOps.divide( Integer.MIN_VALUE, -1 ) );
+        assertEquals( Long.valueOf( 3 ), OgnlOps.divide( 7L, 2L ) );
+        assertEquals( Long.valueOf( -1 ), OgnlOps.remainder( -7L, 3L ) );
+        assertEquals( Double.valueOf( 3.5 ), OgnlOps.divide( 7.0, 2.0 ) );
+        assertEquals( Double.valueOf( 6.0 ), OgnlOps.multiply( 2.0, 3.0 ) );
+
+        // the remainder of reals is computed on their integer part
+        assertEquals( Double.valueOf( 1.0 ), OgnlOps.remainder( 7.5, 2.0 ) );
+
+        assertTrue( OgnlOps.less( 1, 2 ) );
+        assertTrue( OgnlOps.greater( 2L, 1L ) );
+        assertTrue( OgnlOps.greater( Double.NaN, 1.0 ) );
+        assertEquals( 0, OgnlOps.compareWithConversion( 1, 1 ) );
+    }
+
+    @Test
+    public void testSmallValuesBoxedOnce()
+    {
+        assertSame( OgnlOps.add( 1000, 23 ), OgnlOps.newInteger( NumericTypes.INT, 1023 ) );
+        assertSame( OgnlOps.add( 1000L, 23L ), OgnlOps.newInteger( NumericTypes.LONG, 1023 ) );
+        assertSame( OgnlOps.add( -100.0, -28.0 ), OgnlOps.newReal( NumericTypes.DOUBLE, -128 ) );
+        assertNotSame( OgnlOps.add( 1000, 24 ), OgnlOps.newInteger( NumericTypes.INT, 1024 ) );
+
+        assertEquals( Double.valueOf( -0.0 ), OgnlOps.multiply( 0.0, -1.0 ) );
+        assertEquals( Double.valueOf( 0.5 ), OgnlOps.newReal( NumericTypes.DOUBLE, 0.5 ) );
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.ognl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the parallel evaluation of selections and projections.
+ */
+public class ParallelCollectionEvaluatorTest
+{
+
+    private final List<Integer> numbers = new ArrayList<Integer>();
+
+    private OgnlContext context;
+
+    @Before
+    public void setUp()
+    {
+        for ( int i = 0; i < 10000; i++ )
+        {
+            numbers.add( i );
+        }
+        context = (OgnlContext) Ognl.createDefaultContext( null );
+        context.put( "numbers", numbers );
+    }
+
+    @Test
+    public void testParallelEvaluationKeepsEncounterOrder()
+        throws Exception
+    {
+        String[] expressions = { "#numbers.{ #this * 2 }", "#numbers.{? #this % 3 == 0 }", "#numbers.{^ #this > 10 }",
+            "#numbers.{$ #this < 10 }" };
+        List<Object> sequential = new ArrayList<Object>();
+        for ( String expression : expressions )
+        {
+            sequential.add( Ognl.getValue( expression, context, (Object) null ) );
+        }
+
+        context.setParallelThreshold( 100 );
+        for ( int i = 0; i < expressions.length; i++ )
+        {
+            assertEquals( expressions[i], sequential.get( i ), Ognl.getValue( expressions[i], context, (Object) null ) );
+        }
+    }
+
+    @Test
+    public void testSmallSourcesStaySequential()
+        throws Exception
+    {
+        context.put( OgnlContext.PARALLEL_THRESHOLD_CONTEXT_KEY, 100 );
+        context.put( "sum", 0 );
+
+        Ognl.getValue( "{1, 2, 3}.{ #sum = #sum + #this }", context, (Object) null );
+
+        assertEquals( 6, context.get( "sum" ) );
+        assertEquals( 100, context.get( OgnlContext.PARALLEL_THRESHOLD_CONTEXT_KEY ) );
+    }
+
+    @Test
+    public void testFailureIsRethrown()
+        throws Exception
+    {
+        context.setParallelThreshold( 100 );
+        try
+        {
+            Ognl.getValue( "#numbers.{ #this == 5000 ? #this.noSuchProperty : #this }", context, (Object) null );
+            fail( "the failure of a worker should have been rethrown" );
+        }
+        catch ( NoSuchPropertyException e )
+        {
+            // expected
+        }
+    }
+}
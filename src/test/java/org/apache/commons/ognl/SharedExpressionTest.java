@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.ognl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.ognl.enhance.ExpressionAccessor;
+import org.junit.Test;
+
+/**
+ * Tests a single parsed tree evaluated and compiled by several threads at once.
+ */
+public class SharedExpressionTest
+{
+
+    private static final int THREADS = 16;
+
+    @Test
+    public void testFirstEvaluations()
+        throws Exception
+    {
+        final Node expression = (Node) Ognl.parseExpression( "(1 + 2 * 3) + name.length() + #offset" );
+        List<Object> results = runConcurrently( new Callable<Object>()
+        {
+            public Object call()
+                throws Exception
+            {
+                OgnlContext context = (OgnlContext) Ognl.createDefaultContext( null );
+                context.put( "offset", 10 );
+                return Ognl.getValue( expression, context, new Bean( "four" ) );
+            }
+        } );
+        for ( Object result : results )
+        {
+            assertEquals( (Object) 21, result );
+        }
+    }
+
+    @Test
+    public void testCompiledOnce()
+        throws Exception
+    {
+        final Node expression = (Node) Ognl.parseExpression( "name.length() * 2" );
+        List<Object> results = runConcurrently( new Callable<Object>()
+        {
+            public Object call()
+                throws Exception
+            {
+                OgnlContext context = (OgnlContext) Ognl.createDefaultContext( null );
+                OgnlRuntime.compileExpression( context, expression, new Bean( "four" ) );
+                return expression.getAccessor();
+            }
+        } );
+        ExpressionAccessor accessor = expression.getAccessor();
+        assertNotNull( accessor );
+        for ( Object result : results )
+        {
+            assertSame( accessor, result );
+        }
+        OgnlContext context = (OgnlContext) Ognl.createDefaultContext( null );
+        assertEquals( (Object) 6, accessor.get( context, new Bean( "six" ) ) );
+    }
+
+    private static List<Object> runConcurrently( final Callable<Object> task )
+        throws Exception
+    {
+        final CountDownLatch start = new CountDownLatch( 1 );
+        ExecutorService executor = Executors.newFixedThreadPool( THREADS );
+        try
+        {
+            List<Future<Object>> futures = new ArrayList<Future<Object>>();
+            for ( int i = 0; i < THREADS; i++ )
+            {
+                futures.add( executor.submit( new Callable<Object>()
+                {
+                    public Object call()
+                        throws Exception
+                    {
+                        start.await();
+                        return task.call();
+                    }
+                } ) );
+            }
+            start.countDown();
+            List<Object> results = new ArrayList<Object>();
+            for ( Future<Object> future : futures )
+            {
+                results.add( future.get( 10, TimeUnit.SECONDS ) );
+            }
+            return results;
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    public static class Bean
+    {
+        private final String name;
+
+        public Bean( String name )
+        {
+            this.name = name;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+    }
+}
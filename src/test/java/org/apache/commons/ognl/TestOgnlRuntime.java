@@ -166,6 +166,21 @@ public class TestOgnlRuntime
         assertEquals( "getAllowDisplay", method.getName() );
     }
 
+    @Test
+    public void test_Read_And_Write_Methods_Cached()
+        throws Exception
+    {
+        Method method = OgnlRuntime.getReadMethod( GetterMethods.class, "allowDisplay" );
+        assertSame( method, OgnlRuntime.getReadMethod( GetterMethods.class, "allowDisplay" ) );
+
+        assertNull( OgnlRuntime.getReadMethod( GetterMethods.class, "noSuchProperty" ) );
+        assertNull( OgnlRuntime.getReadMethod( GetterMethods.class, "noSuchProperty" ) );
+        assertNull( OgnlRuntime.getWriteMethod( GetterMethods.class, "noSuchProperty" ) );
+
+        OgnlRuntime.clearCache();
+        assertEquals( method, OgnlRuntime.getReadMethod( GetterMethods.class, "allowDisplay" ) );
+    }
+
     @Test
     public void test_Get_Appropriate_Method()
         throws Exception
@@ -178,6 +193,35 @@ public class TestOgnlRuntime
         assert ret != null;
     }
 
+    @Test
+    public void test_Overloads_Resolved_By_Argument_Classes()
+        throws Exception
+    {
+        OgnlContext context = (OgnlContext) Ognl.createDefaultContext( null );
+
+        for ( int i = 0; i < 2; i++ )
+        {
+            assertEquals( 2, OgnlRuntime.callStaticMethod( context, "java.lang.Math", "max", new Object[]{ 1, 2 } ) );
+            assertEquals( 5L, OgnlRuntime.callStaticMethod( context, "java.lang.Math", "max", new Object[]{ 1L, 5L } ) );
+            assertEquals( 1.5, OgnlRuntime.callStaticMethod( context, "java.lang.Math", "max", new Object[]{ 1.5, 0.5 } ) );
+            assertEquals( "true", OgnlRuntime.callStaticMethod( context, "java.lang.String", "valueOf",
+                                                                 new Object[]{ true } ) );
+            assertEquals( "x", OgnlRuntime.callStaticMethod( context, "java.lang.String", "valueOf",
+                                                              new Object[]{ 'x' } ) );
+        }
+
+        // conversions still depend on the values converted
+        assertEquals( "ff", OgnlRuntime.callStaticMethod( context, "java.lang.Integer", "toHexString",
+                                                          new Object[]{ "255" } ) );
+        assertEquals( "10", OgnlRuntime.callStaticMethod( context, "java.lang.Integer", "toHexString",
+                                                          new Object[]{ "16" } ) );
+
+        assertEquals( "abc", OgnlRuntime.callConstructor( context, "java.lang.StringBuilder",
+                                                          new Object[]{ "abc" } ).toString() );
+        assertEquals( 16, ( (StringBuilder) OgnlRuntime.callConstructor( context, "java.lang.StringBuilder",
+                                                                         new Object[]{ 16 } ) ).capacity() );
+    }
+
     @Test
     public void test_Call_Static_Method_Invalid_Class()
     {
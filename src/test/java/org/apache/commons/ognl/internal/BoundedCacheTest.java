@@ -0,0 +1,222 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.commons.ognl.internal;
+
+import org.apache.commons.ognl.test.objects.Bean1;
+import org.apache.commons.ognl.test.objects.Bean2;
+import org.apache.commons.ognl.test.objects.Root;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BoundedCacheTest
+{
+    @Test
+    public void testEviction( )
+        throws Exception
+    {
+        BoundedCache<Integer, String> cache = new BoundedCache<Integer, String>( 10, String::valueOf );
+        for ( int i = 0; i < 100; i++ )
+        {
+            assertEquals( String.valueOf( i ), cache.get( i ) );
+        }
+        assertEquals( 10, cache.getSize( ) );
+        assertEquals( 90, cache.getEvictionCount( ) );
+        assertEquals( 100, cache.getMissCount( ) );
+        assertEquals( 0, cache.getHitCount( ) );
+    }
+
+    @Test
+    public void testRecentlyUsedEntrySurvives( )
+        throws Exception
+    {
+        BoundedCache<Integer, String> cache = new BoundedCache<Integer, String>( 4, String::valueOf );
+        for ( int i = 0; i < 4; i++ )
+        {
+            cache.get( i );
+        }
+        cache.get( 0 );
+        cache.get( 4 );
+
+        assertTrue( cache.contains( 0 ) );
+        assertFalse( cache.contains( 1 ) );
+        assertEquals( 1, cache.getHitCount( ) );
+    }
+
+    @Test
+    public void testPutReplacesAndRemoves( )
+        throws Exception
+    {
+        BoundedCache<String, String> cache = new BoundedCache<String, String>( 4 );
+        cache.put( "key", "first" );
+        cache.put( "key", "second" );
+        assertEquals( "second", cache.get( "key" ) );
+        assertEquals( 1, cache.getSize( ) );
+
+        cache.put( "key", null );
+        assertNull( cache.get( "key" ) );
+        assertEquals( 0, cache.getSize( ) );
+    }
+
+    @Test
+    public void testClassCache( )
+        throws Exception
+    {
+        final AtomicInteger creations = new AtomicInteger( );
+        BoundedClassCache<String> cache = new BoundedClassCache<String>( 16, key -> {
+            creations.incrementAndGet( );
+            return key.getName( );
+        } );
+        cache.setClassInspector( type -> type != Root.class );
+
+        assertSame( cache.get( Bean1.class ), cache.get( Bean1.class ) );
+        assertEquals( Bean2.class.getName( ), cache.get( Bean2.class ) );
+        assertEquals( Root.class.getName( ), cache.get( Root.class ) );
+
+        assertTrue( cache.contains( Bean1.class ) );
+        assertFalse( cache.contains( Root.class ) );
+        assertEquals( 2, cache.getSize( ) );
+        assertEquals( 3, creations.get( ) );
+    }
+
+    @Test
+    public void testValuesDontKeepTheirClassLoaded( )
+        throws Exception
+    {
+        BoundedClassCache<Object> cache = new BoundedClassCache<Object>( 16, Class::getDeclaredMethods );
+        BoundedClassCache<Object> registry = new BoundedClassCache<Object>( Integer.MAX_VALUE, null );
+        WeakReference<ClassLoader> loader = cacheIsolatedClass( cache, registry );
+
+        for ( int i = 0; i < 100 && loader.get( ) != null; i++ )
+        {
+            System.gc( );
+            Thread.sleep( 10 );
+        }
+        assertNull( loader.get( ) );
+        assertEquals( 0, cache.getSize( ) );
+        assertEquals( 0, registry.getSize( ) );
+    }
+
+    private static WeakReference<ClassLoader> cacheIsolatedClass( BoundedClassCache<Object> cache,
+                                                                  BoundedClassCache<Object> registry )
+        throws Exception
+    {
+        ClassLoader loader = new IsolatingClassLoader( Isolated.class.getName( ) );
+        Class<?> type = loader.loadClass( Isolated.class.getName( ) );
+        assertNotSame( Isolated.class, type );
+
+        // both values refer to their class
+        cache.get( type );
+        registry.put( type, type );
+        assertEquals( 1, cache.getSize( ) );
+        assertEquals( 1, registry.getSize( ) );
+        return new WeakReference<ClassLoader>( loader );
+    }
+
+    public static class Isolated
+    {
+        public String getName( )
+        {
+            return "isolated";
+        }
+    }
+
+    /**
+     * Loads its own copy of a single class.
+     */
+    private static class IsolatingClassLoader
+        extends ClassLoader
+    {
+        private final String isolatedName;
+
+        IsolatingClassLoader( String isolatedName )
+        {
+            super( BoundedCacheTest.class.getClassLoader( ) );
+            this.isolatedName = isolatedName;
+        }
+
+        @Override
+        protected Class<?> loadClass( String name, boolean resolve )
+            throws ClassNotFoundException
+        {
+            if ( !isolatedName.equals( name ) )
+            {
+                return super.loadClass( name, resolve );
+            }
+            synchronized ( getClassLoadingLock( name ) )
+            {
+                Class<?> result = findLoadedClass( name );
+                if ( result == null )
+                {
+                    byte[] bytes = readClass( name );
+                    result = defineClass( name, bytes, 0, bytes.length );
+                }
+                return result;
+            }
+        }
+
+        private byte[] readClass( String name )
+            throws ClassNotFoundException
+        {
+            InputStream in = getParent( ).getResourceAsStream( name.replace( '.', '/' ) + ".class" );
+            if ( in == null )
+            {
+                throw new ClassNotFoundException( name );
+            }
+            try
+            {
+                ByteArrayOutputStream out = new ByteArrayOutputStream( );
+                byte[] buffer = new byte[4096];
+                for ( int read; ( read = in.read( buffer ) ) != -1; )
+                {
+                    out.write( buffer, 0, read );
+                }
+                return out.toByteArray( );
+            }
+            catch ( IOException e )
+            {
+                throw new ClassNotFoundException( name, e );
+            }
+            finally
+            {
+                try
+                {
+                    in.close( );
+                }
+                catch ( IOException e )
+                {
+                    // nothing left to read
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.commons.ognl.internal;
+
+import org.apache.commons.ognl.test.objects.Bean1;
+import org.apache.commons.ognl.test.objects.Root;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ClassCacheImplTest
+{
+    private static List<Class<?>> createClasses( int count )
+    {
+        List<Class<?>> classes = new ArrayList<Class<?>>( count );
+        for ( int i = 0; i < count; i++ )
+        {
+            ClassLoader loader = new ClassLoader( ClassCacheImplTest.class.getClassLoader( ) )
+            {
+            };
+            classes.add( Proxy.getProxyClass( loader, Runnable.class ) );
+        }
+        return classes;
+    }
+
+    @Test
+    public void testResize( )
+        throws Exception
+    {
+        ClassCache<String> cache = new ClassCacheImpl<String>( );
+        List<Class<?>> classes = createClasses( 2000 );
+        for ( Class<?> clazz : classes )
+        {
+            cache.put( clazz, clazz.getName( ) );
+        }
+        assertEquals( 2000, cache.getSize( ) );
+        for ( Class<?> clazz : classes )
+        {
+            assertEquals( clazz.getName( ), cache.get( clazz ) );
+        }
+
+        cache.put( classes.get( 0 ), "replaced" );
+        assertEquals( "replaced", cache.get( classes.get( 0 ) ) );
+        assertEquals( 2000, cache.getSize( ) );
+
+        cache.clear( );
+        assertNull( cache.get( classes.get( 1 ) ) );
+        assertEquals( 0, cache.getSize( ) );
+    }
+
+    @Test
+    public void testClassInspector( )
+        throws Exception
+    {
+        ClassCache<Class<?>> cache = new ClassCacheImpl<Class<?>>( key -> key );
+        cache.setClassInspector( type -> type != Root.class );
+
+        assertSame( Root.class, cache.get( Root.class ) );
+        assertSame( Bean1.class, cache.get( Bean1.class ) );
+        cache.put( Root.class, Root.class );
+        assertEquals( 1, cache.getSize( ) );
+    }
+
+    @Test
+    public void testConcurrentPutAndGet( )
+        throws Exception
+    {
+        final ClassCache<Class<?>> cache = new ClassCacheImpl<Class<?>>( );
+        final List<Class<?>> classes = createClasses( 4000 );
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        try
+        {
+            List<Future<?>> results = new ArrayList<Future<?>>( );
+            for ( int t = 0; t < threads; t++ )
+            {
+                final int offset = t;
+                results.add( executor.submit( ( ) -> {
+                    for ( int i = offset; i < classes.size( ); i += threads )
+                    {
+                        Class<?> clazz = classes.get( i );
+                        cache.put( clazz, clazz );
+                        assertSame( clazz, cache.get( clazz ) );
+                    }
+                    return null;
+                } ) );
+            }
+            for ( Future<?> result : results )
+            {
+                result.get( 30, TimeUnit.SECONDS );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow( );
+        }
+        assertEquals( classes.size( ), cache.getSize( ) );
+        for ( Class<?> clazz : classes )
+        {
+            assertSame( clazz, cache.get( clazz ) );
+        }
+    }
+}
@@ -27,9 +27,17 @@ import org.junit.Test;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static junit.framework.Assert.assertNotNull;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 
 public class ConcurrentHashMapCacheTest
 {
@@ -45,6 +53,48 @@ public class ConcurrentHashMapCacheTest
         getMethods( new CacheEntry( Bean2.class, "id" ) );
     }
 
+    @Test
+    public void testConcurrentGetCreatesOnce( )
+        throws Exception
+    {
+        final AtomicInteger creations = new AtomicInteger( );
+        final Cache<Class<?>, Object> countingCache = new ConcurrentHashMapCache<Class<?>, Object>(
+            new CacheEntryFactory<Class<?>, Object>( )
+            {
+                public Object create( Class<?> key )
+                    throws CacheException
+                {
+                    creations.incrementAndGet( );
+                    return new Object( );
+                }
+            } );
+        int threads = 16;
+        final CountDownLatch start = new CountDownLatch( 1 );
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        try
+        {
+            List<Future<Object>> results = new ArrayList<Future<Object>>( );
+            for ( int i = 0; i < threads; i++ )
+            {
+                results.add( executor.submit( ( ) -> {
+                    start.await( );
+                    return countingCache.get( Bean2.class );
+                } ) );
+            }
+            start.countDown( );
+            Object first = results.get( 0 ).get( 10, TimeUnit.SECONDS );
+            for ( Future<Object> result : results )
+            {
+                assertSame( first, result.get( 10, TimeUnit.SECONDS ) );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow( );
+        }
+        assertEquals( 1, creations.get( ) );
+    }
+
     private void getMethods( CacheEntry entry )
         throws CacheException
     {
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.commons.ognl.internal;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MemberHandleTest
+{
+    @Test
+    public void testPublicMethod( )
+        throws Exception
+    {
+        MemberHandle handle = MemberHandle.forMethod( Target.class.getMethod( "add", int.class, long.class ) );
+        Target target = new Target();
+
+        assertTrue( handle.isApplicable( target, new Object[]{ 1, 2L } ) );
+        assertEquals( 3L, handle.invoke( target, new Object[]{ 1, 2L } ) );
+
+        // widening and unboxing of null are left to reflection
+        assertFalse( handle.isApplicable( target, new Object[]{ 1, 2 } ) );
+        assertFalse( handle.isApplicable( target, new Object[]{ null, 2L } ) );
+        assertFalse( handle.isApplicable( target, new Object[]{ 1 } ) );
+        assertFalse( handle.isApplicable( "not a target", new Object[]{ 1, 2L } ) );
+    }
+
+    @Test
+    public void testNonPublicMembersLeftToReflection( )
+        throws Exception
+    {
+        Method method = Target.class.getDeclaredMethod( "secret" );
+        assertFalse( MemberHandle.forMethod( method ).isApplicable( new Target(), new Object[0] ) );
+        assertFalse( method.isAccessible() );
+
+        Field field = Target.class.getDeclaredField( "value" );
+        assertFalse( MemberHandle.forFieldGetter( field ).isApplicable( new Target(), new Object[0] ) );
+        assertFalse( MemberHandle.forFieldSetter( field ).isApplicable( new Target(), new Object[]{ "a" } ) );
+        assertFalse( field.isAccessible() );
+
+        assertFalse( MemberHandle.forMethod( Hidden.class.getMethod( "toString" ) ).isApplicable( new Hidden(),
+                                                                                                 new Object[0] ) );
+    }
+
+    @Test
+    public void testAccessibleCopyOfNonPublicMethod( )
+        throws Exception
+    {
+        Method method = Target.class.getDeclaredMethod( "secret" );
+        Method copy = Target.class.getDeclaredMethod( "secret" );
+        copy.setAccessible( true );
+
+        MemberHandle handle = MemberHandle.forAccessibleMethod( copy );
+        assertTrue( handle.isApplicable( new Target(), new Object[0] ) );
+        assertEquals( "secret", handle.invoke( new Target(), new Object[0] ) );
+        assertFalse( method.isAccessible() );
+    }
+
+    @Test
+    public void testStaticAndVoidMethods( )
+        throws Exception
+    {
+        MemberHandle handle = MemberHandle.forMethod( Target.class.getMethod( "twice", String.class ) );
+        assertTrue( handle.isApplicable( null, new Object[]{ "a" } ) );
+        assertEquals( "aa", handle.invoke( null, new Object[]{ "a" } ) );
+
+        Target target = new Target();
+        handle = MemberHandle.forMethod( Target.class.getMethod( "setValue", String.class ) );
+        assertNull( handle.invoke( target, new Object[]{ "b" } ) );
+        assertEquals( "b", target.value );
+    }
+
+    @Test
+    public void testFailureWrapped( )
+        throws Exception
+    {
+        MemberHandle handle = MemberHandle.forMethod( Target.class.getMethod( "fail" ) );
+        try
+        {
+            handle.invoke( new Target(), new Object[0] );
+            fail( "the failure of the method should have been rethrown" );
+        }
+        catch ( InvocationTargetException e )
+        {
+            assertTrue( e.getTargetException() instanceof IllegalStateException );
+        }
+    }
+
+    @Test
+    public void testFieldsAndConstructors( )
+        throws Exception
+    {
+        Field field = Target.class.getField( "label" );
+        Target target = new Target();
+
+        MemberHandle.forFieldSetter( field ).invoke( target, new Object[]{ "c" } );
+        assertEquals( "c", MemberHandle.forFieldGetter( field ).invoke( target, new Object[0] ) );
+        assertFalse( MemberHandle.forFieldSetter( Target.class.getField( "CONSTANT" ) ).isApplicable( null,
+                                                                                                  new Object[]{ "" } ) );
+
+        MemberHandle constructor = MemberHandle.forConstructor( Target.class.getConstructor( String.class ) );
+        assertTrue( constructor.isApplicable( null, new Object[]{ "d" } ) );
+        assertEquals( "d", ( (Target) constructor.invoke( null, new Object[]{ "d" } ) ).value );
+        assertSame( Target.class, constructor.invoke( null, new Object[]{ "e" } ).getClass() );
+    }
+
+    public static class Target
+    {
+        public static final String CONSTANT = "constant";
+
+        public String label;
+
+        private String value;
+
+        public Target()
+        {
+        }
+
+        public Target( String value )
+        {
+            this.value = value;
+        }
+
+        public long add( int a, long b )
+        {
+            return a + b;
+        }
+
+        public static String twice( String s )
+        {
+            return s + s;
+        }
+
+        public void setValue( String value )
+        {
+            this.value = value;
+        }
+
+        public void fail()
+        {
+            throw new IllegalStateException();
+        }
+
+        private String secret()
+        {
+            return "secret";
+        }
+    }
+
+    static class Hidden
+    {
+        @Override
+        public String toString()
+        {
+            return "hidden";
+        }
+    }
+}
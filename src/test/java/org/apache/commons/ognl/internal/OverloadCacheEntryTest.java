@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.commons.ognl.internal;
+
+import org.apache.commons.ognl.internal.entry.OverloadCacheEntry;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+
+public class OverloadCacheEntryTest
+{
+
+    @Test
+    public void testMembersComparedByIdentity()
+        throws Exception
+    {
+        List<Method> methods = new ArrayList<Method>( Arrays.asList( String.class.getMethods() ) )
+        {
+            @Override
+            public boolean equals( Object o )
+            {
+                throw new AssertionError( "the members shouldn't be compared" );
+            }
+
+            @Override
+            public int hashCode()
+            {
+                throw new AssertionError( "the members shouldn't be hashed" );
+            }
+        };
+        Class<?>[] argumentClasses = { String.class, null };
+
+        OverloadCacheEntry key = new OverloadCacheEntry( String.class, methods, argumentClasses );
+        OverloadCacheEntry same = new OverloadCacheEntry( String.class, methods, argumentClasses.clone() );
+        assertEquals( key, same );
+        assertEquals( key.hashCode(), same.hashCode() );
+
+        List<Method> copy = new ArrayList<Method>( methods );
+        assertFalse( key.equals( new OverloadCacheEntry( String.class, copy, argumentClasses ) ) );
+    }
+}
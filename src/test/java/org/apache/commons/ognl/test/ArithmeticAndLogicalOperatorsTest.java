@@ -78,6 +78,9 @@ public class ArithmeticAndLogicalOperatorsTest
         { "5l&3|5^3", new Long( 7 ) },
         { "5&(3|5^3)", new Long( 5 ) },
         { "true ? 1 : 1/0", new Integer( 1 ) },
+        { "2147483647 + 1", Integer.valueOf( Integer.MIN_VALUE ) },
+        { "2 * 3 * 4.0", Double.valueOf( 24 ) },
+        { "-7 % 3", Integer.valueOf( -1 ) },
 
         // BigInteger-valued arithmetic expressions
         { "-1h", Integer.valueOf( -1 ) },
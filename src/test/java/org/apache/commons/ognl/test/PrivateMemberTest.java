@@ -21,9 +21,11 @@ package org.apache.commons.ognl.test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
 import org.apache.commons.ognl.DefaultMemberAccess;
+import org.apache.commons.ognl.NoSuchPropertyException;
 import org.apache.commons.ognl.Ognl;
 import org.apache.commons.ognl.OgnlContext;
 import org.apache.commons.ognl.OgnlException;
+import org.apache.commons.ognl.OgnlRuntime;
 import org.junit.Before;
 
 /**
@@ -34,6 +36,8 @@ public class PrivateMemberTest
 {
     private final String _privateProperty = "private value";
 
+    private String _privateField = "private field";
+
     protected OgnlContext context;
 
     /*
@@ -69,6 +73,32 @@ public class PrivateMemberTest
         assertEquals( Ognl.getValue( "_privateProperty", context, this ), _privateProperty );
     }
 
+    public void testPrivateFieldDenied()
+        throws OgnlException
+    {
+        OgnlContext restricted = (OgnlContext) Ognl.createDefaultContext( null );
+        restricted.setMemberAccess( new DefaultMemberAccess( false ) );
+        try
+        {
+            Ognl.setValue( "_privateField", restricted, this, "changed" );
+            fail( "the private field shouldn't be written" );
+        }
+        catch ( NoSuchPropertyException e )
+        {
+            // expected
+        }
+        assertEquals( "private field", _privateField );
+        try
+        {
+            OgnlRuntime.getFieldValue( restricted, this, "_privateField" );
+            fail( "the private field shouldn't be read" );
+        }
+        catch ( NoSuchFieldException e )
+        {
+            // expected
+        }
+    }
+
     /*
      */
     @Before
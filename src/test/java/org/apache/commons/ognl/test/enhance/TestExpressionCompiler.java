@@ -21,9 +21,13 @@
  */
 package org.apache.commons.ognl.test.enhance;
 
+import javassist.CtClass;
+import javassist.CtField;
+import javassist.CtMethod;
 import org.apache.commons.ognl.Node;
 import org.apache.commons.ognl.Ognl;
 import org.apache.commons.ognl.OgnlContext;
+import org.apache.commons.ognl.enhance.ExpressionAccessor;
 import org.apache.commons.ognl.enhance.ExpressionCompiler;
 import org.apache.commons.ognl.enhance.OgnlExpressionCompiler;
 import org.apache.commons.ognl.test.objects.Bean1;
@@ -36,9 +40,16 @@ import org.apache.commons.ognl.test.objects.TestInherited2;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static junit.framework.Assert.*;
 
@@ -164,6 +175,87 @@ public class TestExpressionCompiler
         assertTrue( Collection.class.isInstance( ret ) );
     }
 
+    @Test
+    public void test_Selection_And_Projection()
+        throws Throwable
+    {
+        Root root = new Root();
+        String[] expressions = { "map.array.{? #this > 2 }", "map.array.{^ #this > 2 }", "map.array.{$ #this > 2 }",
+            "array.{? #this > 1}.{#this * 2}", "array.{? #this > 1}.size()", "array.{ -#this + 1 }" };
+        // element expressions compiled, the last one can't be and is left to its node
+        int[] operations = { 1, 1, 1, 2, 1, 0 };
+        OgnlExpressionCompiler compiler = new ExpressionCompiler()
+        {
+            @Override
+            protected String generateOgnlGetter( CtClass clazz, CtMethod valueGetter, CtField node )
+            {
+                throw new AssertionError( "the expression shouldn't be interpreted" );
+            }
+        };
+        for ( int i = 0; i < expressions.length; i++ )
+        {
+            Object expected = Ognl.getValue( expressions[i], root );
+            Node expr = (Node) Ognl.parseExpression( expressions[i] );
+            compiler.compileExpression( _context, expr, root );
+
+            // the element expressions are compiled too, and evaluated through their accessor
+            List<CountingAccessor> elementAccessors = new ArrayList<CountingAccessor>();
+            countElementAccessors( expr, elementAccessors );
+            assertEquals( operations[i], elementAccessors.size() );
+
+            assertEquals( expected, expr.getAccessor().get( _context, root ) );
+            for ( CountingAccessor accessor : elementAccessors )
+            {
+                assertTrue( accessor.count > 0 );
+            }
+        }
+        assertFalse( _context.containsKey( ExpressionCompiler.COMPILED_EXPRESSION ) );
+    }
+
+    private static void countElementAccessors( Node parent, List<CountingAccessor> accessors )
+    {
+        for ( int i = 0; i < parent.jjtGetNumChildren(); i++ )
+        {
+            Node child = parent.jjtGetChild( i );
+            if ( child.getAccessor() != null )
+            {
+                CountingAccessor accessor = new CountingAccessor( child.getAccessor() );
+                child.setAccessor( accessor );
+                accessors.add( accessor );
+            }
+            countElementAccessors( child, accessors );
+        }
+    }
+
+    static class CountingAccessor
+        implements ExpressionAccessor
+    {
+        private final ExpressionAccessor accessor;
+
+        int count;
+
+        CountingAccessor( ExpressionAccessor accessor )
+        {
+            this.accessor = accessor;
+        }
+
+        public Object get( OgnlContext context, Object target )
+        {
+            count++;
+            return accessor.get( context, target );
+        }
+
+        public void set( OgnlContext context, Object target, Object value )
+        {
+            accessor.set( context, target, value );
+        }
+
+        public void setExpression( Node expression )
+        {
+            accessor.setExpression( expression );
+        }
+    }
+
     @Test
     public void test_Root_Expression_Inheritance()
         throws Throwable
@@ -249,4 +341,46 @@ public class TestExpressionCompiler
         node.getAccessor().set( _context, root, 12 );
         assertEquals( 12, node.getAccessor().get( _context, root ) );
     }
+
+    @Test
+    public void test_Concurrent_Compilation()
+        throws Exception
+    {
+        final String[] expressions =
+            { "bean2", "bean2.bean3.value <= 24", "bean2.bean3.indexedValue[25]", "bean2.bean3.value + 1" };
+        ExecutorService executor = Executors.newFixedThreadPool( 8 );
+        try
+        {
+            List<Future<Object>> results = new ArrayList<Future<Object>>();
+            for ( int i = 0; i < 200; i++ )
+            {
+                final String expression = expressions[i % expressions.length];
+                results.add( executor.submit( new Callable<Object>()
+                {
+                    public Object call()
+                        throws Exception
+                    {
+                        OgnlContext context = (OgnlContext) Ognl.createDefaultContext( null );
+                        Bean1 root = new Bean1();
+                        Node expr = (Node) Ognl.parseExpression( expression );
+
+                        _compiler.compileExpression( context, expr, root );
+
+                        assertEquals( Ognl.getValue( expression, root ), expr.getAccessor().get( context, root ) );
+                        return expr.getAccessor().getClass();
+                    }
+                } ) );
+            }
+            Collection<Object> classes = new HashSet<Object>();
+            for ( Future<Object> result : results )
+            {
+                classes.add( result.get() );
+            }
+            assertEquals( results.size(), classes.size() );
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
 }
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.commons.ognl.test.enhance;
+
+import org.apache.commons.ognl.Node;
+import org.apache.commons.ognl.Ognl;
+import org.apache.commons.ognl.OgnlContext;
+import org.apache.commons.ognl.OgnlRuntime;
+import org.apache.commons.ognl.enhance.MethodHandleExpressionCompiler;
+import org.apache.commons.ognl.enhance.OgnlExpressionCompiler;
+import org.apache.commons.ognl.test.objects.Bean1;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests functionality of {@link MethodHandleExpressionCompiler}.
+ */
+public class TestMethodHandleExpressionCompiler
+{
+    OgnlExpressionCompiler _compiler;
+
+    OgnlContext _context = (OgnlContext) Ognl.createDefaultContext( null );
+
+    @Before
+    public void setUp()
+    {
+        _compiler = new MethodHandleExpressionCompiler();
+    }
+
+    private Node compile( String expression, Object root )
+        throws Exception
+    {
+        Node expr = (Node) Ognl.parseExpression( expression );
+        _compiler.compileExpression( _context, expr, root );
+        return expr;
+    }
+
+    @Test
+    public void test_Get_Property_Chain()
+        throws Exception
+    {
+        Bean1 root = new Bean1();
+        Node expr = compile( "bean2.bean3.value", root );
+
+        root.getBean2().getBean3().setValue( 42 );
+        assertEquals( 42, expr.getAccessor().get( _context, root ) );
+    }
+
+    @Test
+    public void test_Set_Property_Chain()
+        throws Exception
+    {
+        Bean1 root = new Bean1();
+        Node expr = compile( "bean2.bean3.value", root );
+
+        expr.getAccessor().set( _context, root, 5 );
+        assertEquals( 5, root.getBean2().getBean3().getValue() );
+
+        // needs conversion, handled by the interpreter
+        expr.getAccessor().set( _context, root, "7" );
+        assertEquals( 7, root.getBean2().getBean3().getValue() );
+
+        expr = compile( "bean2.bean3.nullValue", root );
+        expr.getAccessor().set( _context, root, null );
+        assertNull( root.getBean2().getBean3().getNullValue() );
+    }
+
+    @Test
+    public void test_Constant()
+        throws Exception
+    {
+        assertEquals( "foo", compile( "'foo'", null ).getAccessor().get( _context, null ) );
+    }
+
+    @Test
+    public void test_Interpreted_Fallback()
+        throws Exception
+    {
+        Bean1 root = new Bean1();
+        Node expr = compile( "bean2.bean3.value + 1", root );
+
+        root.getBean2().getBean3().setValue( 1 );
+        assertEquals( 2, expr.getAccessor().get( _context, root ) );
+
+        // guarded against the compile time root class
+        Map<String, Object> other = new HashMap<String, Object>();
+        other.put( "bean2", "mapped" );
+        assertEquals( "mapped", compile( "bean2", root ).getAccessor().get( _context, other ) );
+    }
+
+    @Test
+    public void test_Selected_Through_OgnlRuntime()
+        throws Exception
+    {
+        OgnlExpressionCompiler previous = OgnlRuntime.getCompiler( _context );
+        OgnlRuntime.setCompiler( _compiler );
+        try
+        {
+            Bean1 root = new Bean1();
+            Node expr = Ognl.compileExpression( _context, root, "bean2.bean3" );
+            assertEquals( root.getBean2().getBean3(), Ognl.getValue( expr, _context, root ) );
+        }
+        finally
+        {
+            OgnlRuntime.setCompiler( previous );
+        }
+    }
+
+    @Test
+    public void test_Guard_Failure_Resumes_Interpretation()
+        throws Exception
+    {
+        Counting root = new Counting();
+        Node expr = compile( "item.name", root );
+
+        root.item = new Item( "compiled" );
+        assertEquals( "compiled", expr.getAccessor().get( _context, root ) );
+        assertEquals( 1, root.reads );
+
+        // fails the guard of the second step, the first one isn't run again
+        root.item = new OtherItem( "other" );
+        assertEquals( "other", expr.getAccessor().get( _context, root ) );
+        assertEquals( 2, root.reads );
+
+        expr.getAccessor().set( _context, root, "renamed" );
+        assertEquals( "renamed", root.item.getName() );
+        assertEquals( 3, root.reads );
+    }
+
+    public static class Counting
+    {
+        int reads;
+
+        Item item;
+
+        public Item getItem()
+        {
+            reads++;
+            return item;
+        }
+    }
+
+    public static class Item
+    {
+        private String name;
+
+        public Item( String name )
+        {
+            this.name = name;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public void setName( String name )
+        {
+            this.name = name;
+        }
+    }
+
+    public static class OtherItem
+        extends Item
+    {
+        public OtherItem( String name )
+        {
+            super( name );
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.commons.ognl.test.enhance;
+
+import org.apache.commons.ognl.Node;
+import org.apache.commons.ognl.Ognl;
+import org.apache.commons.ognl.OgnlContext;
+import org.apache.commons.ognl.OgnlRuntime;
+import org.apache.commons.ognl.enhance.TieredCompiler;
+import org.apache.commons.ognl.test.objects.Bean1;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests functionality of {@link TieredCompiler}.
+ */
+public class TestTieredCompiler
+{
+    TieredCompiler _previous;
+
+    OgnlContext _context = (OgnlContext) Ognl.createDefaultContext( null );
+
+    @Before
+    public void setUp()
+    {
+        _previous = OgnlRuntime.getTieredCompiler();
+        // compile on the calling thread
+        OgnlRuntime.setTieredCompiler( new TieredCompiler( 2, Runnable::run ) );
+    }
+
+    @After
+    public void tearDown()
+    {
+        OgnlRuntime.setTieredCompiler( _previous );
+    }
+
+    @Test
+    public void test_Compiled_After_Threshold()
+        throws Exception
+    {
+        Bean1 root = new Bean1();
+        Node expr = (Node) Ognl.parseExpression( "bean2.bean3.value" );
+
+        Ognl.getValue( expr, _context, root );
+        assertNull( expr.getAccessor() );
+
+        Ognl.getValue( expr, _context, root );
+        assertNotNull( expr.getAccessor() );
+
+        root.getBean2().getBean3().setValue( 7 );
+        assertEquals( 7, (int) Ognl.<Integer> getValue( expr, _context, root ) );
+
+        Ognl.setValue( expr, _context, root, 8 );
+        assertEquals( 8, root.getBean2().getBean3().getValue() );
+    }
+
+    @Test
+    public void test_Other_Root_Class_Interpreted()
+        throws Exception
+    {
+        Node expr = (Node) Ognl.parseExpression( "bean2" );
+        Bean1 root = new Bean1();
+
+        Ognl.getValue( expr, _context, root );
+        Ognl.getValue( expr, _context, root );
+        assertNotNull( expr.getAccessor() );
+
+        Map<String, Object> other = new HashMap<String, Object>();
+        other.put( "bean2", "mapped" );
+        assertEquals( "mapped", Ognl.getValue( expr, _context, other ) );
+        assertEquals( "mapped", expr.getAccessor().get( _context, other ) );
+        assertEquals( root.getBean2(), Ognl.getValue( expr, _context, root ) );
+    }
+
+    @Test
+    public void test_Compilation_Evaluates_Nothing()
+        throws Exception
+    {
+        Counter root = new Counter();
+        Node expr = (Node) Ognl.parseExpression( "next" );
+
+        assertEquals( 1, (int) Ognl.<Integer> getValue( expr, _context, root ) );
+        assertEquals( 2, (int) Ognl.<Integer> getValue( expr, _context, root ) );
+        assertNotNull( expr.getAccessor() );
+        assertEquals( 2, root.count );
+
+        assertEquals( 3, (int) Ognl.<Integer> getValue( expr, _context, root ) );
+        assertEquals( 3, root.count );
+    }
+
+    @Test
+    public void test_Intermediate_Values_Of_Other_Classes()
+        throws Exception
+    {
+        Holder root = new Holder();
+        Node expr = (Node) Ognl.parseExpression( "value.name" );
+
+        root.value = new Named( "first" );
+        Ognl.getValue( expr, _context, root );
+        Ognl.getValue( expr, _context, root );
+        assertNotNull( expr.getAccessor() );
+        assertEquals( "first", Ognl.getValue( expr, _context, root ) );
+
+        root.value = new OtherNamed( "other" );
+        assertEquals( "other", Ognl.getValue( expr, _context, root ) );
+    }
+
+    @Test
+    public void test_Same_Exceptions_After_Compilation()
+        throws Exception
+    {
+        Holder root = new Holder();
+        Node read = (Node) Ognl.parseExpression( "value.name" );
+        Node state = (Node) Ognl.parseExpression( "value.state" );
+
+        // null in the chain, getter and setter failures, interpreted
+        Exception[] interpreted = getFailures( root, read, state );
+
+        root.value = new Named( "first" );
+        Ognl.getValue( read, _context, root );
+        Ognl.getValue( read, _context, root );
+        Ognl.setValue( state, _context, root, "ok" );
+        Ognl.setValue( state, _context, root, "ok" );
+        assertNotNull( read.getAccessor() );
+        assertNotNull( state.getAccessor() );
+
+        Exception[] compiled = getFailures( root, read, state );
+        for ( int i = 0; i < interpreted.length; i++ )
+        {
+            assertEquals( interpreted[i].getClass(), compiled[i].getClass() );
+            assertEquals( interpreted[i].getMessage(), compiled[i].getMessage() );
+            assertEquals( String.valueOf( interpreted[i].getCause() ), String.valueOf( compiled[i].getCause() ) );
+        }
+    }
+
+    private Exception[] getFailures( Holder root, Node read, Node state )
+    {
+        Exception[] failures = new Exception[3];
+        root.value = null;
+        try
+        {
+            Ognl.getValue( read, _context, root );
+        }
+        catch ( Exception e )
+        {
+            failures[0] = e;
+        }
+
+        root.value = new Named( "failing" );
+        root.value.failing = true;
+        try
+        {
+            Ognl.getValue( state, _context, root );
+        }
+        catch ( Exception e )
+        {
+            failures[1] = e;
+        }
+        try
+        {
+            Ognl.setValue( state, _context, root, "failed" );
+        }
+        catch ( Exception e )
+        {
+            failures[2] = e;
+        }
+        assertNotNull( failures[0] );
+        assertNotNull( failures[1] );
+        assertNotNull( failures[2] );
+        return failures;
+    }
+
+    public static class Counter
+    {
+        int count;
+
+        public int getNext()
+        {
+            return ++count;
+        }
+    }
+
+    public static class Holder
+    {
+        Named value;
+
+        public Named getValue()
+        {
+            return value;
+        }
+    }
+
+    public static class Named
+    {
+        private final String name;
+
+        boolean failing;
+
+        public Named( String name )
+        {
+            this.name = name;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public String getState()
+        {
+            if ( failing )
+            {
+                throw new IllegalStateException( "failing get" );
+            }
+            return name;
+        }
+
+        public void setState( String state )
+        {
+            if ( failing )
+            {
+                throw new IllegalStateException( "failing set" );
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            return name;
+        }
+    }
+
+    public static class OtherNamed
+        extends Named
+    {
+        public OtherNamed( String name )
+        {
+            super( name );
+        }
+    }
+}